@@ -0,0 +1,194 @@
+package com.was.benchmark;
+
+import com.was.diagnostics.AuthMetrics;
+import com.was.diagnostics.LogThrottle;
+import com.was.filter.JwtAuthenticationTokenFilter;
+import com.was.pojo.JwtProperties;
+import com.was.pojo.LogProperties;
+import com.was.pojo.RbacProperties;
+import com.was.pojo.SessionProperties;
+import com.was.pojo.entity.LoginUser;
+import com.was.pojo.entity.User;
+import com.was.security.AuthorityRegistry;
+import com.was.security.TokenDenylist;
+import com.was.session.LoginUserNearCache;
+import com.was.session.RedisSessionStore;
+import com.was.session.SessionLookupBatcher;
+import com.was.session.SessionRefresher;
+import com.was.session.SessionStoreBreaker;
+import com.was.utils.FastJwtVerifier;
+import com.was.utils.JwtCodec;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 认证过滤器完整处理一次携带有效token的请求
+ * redis以mock代替, 预热后用户信息来自本地缓存, 衡量的是过滤器自身的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthenticationFilterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean fastVerify;
+
+    // 无状态模式: 令牌携带用户名和jti, 不读取会话
+    @Param({"false", "true"})
+    public boolean stateless;
+
+    private JwtAuthenticationTokenFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.setFastVerify(fastVerify);
+        jwtProperties.getStateless().setEnabled(stateless);
+        JwtCodec jwtCodec = new JwtCodec(jwtProperties.getUserSecretKey());
+
+        LoginUser loginUser = new LoginUser(User.builder().id(10086L).userName("benchmark").build(), List.of("ADMIN"));
+        RedisTemplate<String, Object> redisTemplate = Mockito.mock(RedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = Mockito.mock(HashOperations.class);
+        Mockito.when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        Mockito.when(hashOperations.multiGet("login:10086", List.of("s1", "s1:exp")))
+                .thenReturn(Arrays.asList(loginUser, System.currentTimeMillis() + jwtProperties.getUserTtl()));
+
+        // 与生产环境相同: Prometheus注册表, 直方图加p50/p99/p999
+        PrometheusMeterRegistry prometheusRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        prometheusRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .minimumExpectedValue((double) TimeUnit.MICROSECONDS.toNanos(10))
+                        .maximumExpectedValue((double) TimeUnit.SECONDS.toNanos(10))
+                        .build()
+                        .merge(config);
+            }
+        });
+        AuthMetrics authMetrics = new AuthMetrics();
+        ReflectionTestUtils.setField(authMetrics, "meterRegistry", prometheusRegistry);
+        authMetrics.init();
+
+        // 单线程基准测试, 未命中时直接查询
+        SessionProperties sessionProperties = new SessionProperties();
+        sessionProperties.getBatch().setEnabled(false);
+        SessionLookupBatcher sessionLookupBatcher = new SessionLookupBatcher();
+        ReflectionTestUtils.setField(sessionLookupBatcher, "sessionProperties", sessionProperties);
+        ReflectionTestUtils.setField(sessionLookupBatcher, "redisTemplate", redisTemplate);
+
+        RedisSessionStore sessionStore = new RedisSessionStore(redisTemplate, sessionLookupBatcher);
+
+        SessionStoreBreaker sessionStoreBreaker = new SessionStoreBreaker();
+        ReflectionTestUtils.setField(sessionStoreBreaker, "sessionProperties", sessionProperties);
+        ReflectionTestUtils.setField(sessionStoreBreaker, "meterRegistry", new SimpleMeterRegistry());
+        sessionStoreBreaker.init();
+
+        LoginUserNearCache nearCache = new LoginUserNearCache();
+        ReflectionTestUtils.setField(nearCache, "sessionProperties", sessionProperties);
+        ReflectionTestUtils.setField(nearCache, "sessionStore", sessionStore);
+        ReflectionTestUtils.setField(nearCache, "sessionStoreBreaker", sessionStoreBreaker);
+        ReflectionTestUtils.setField(nearCache, "stringRedisTemplate", Mockito.mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(nearCache, "listenerContainer", Mockito.mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(nearCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(nearCache, "authMetrics", authMetrics);
+        nearCache.init();
+
+        SessionRefresher sessionRefresher = new SessionRefresher();
+        ReflectionTestUtils.setField(sessionRefresher, "sessionProperties", new SessionProperties());
+        ReflectionTestUtils.setField(sessionRefresher, "jwtProperties", jwtProperties);
+        ReflectionTestUtils.setField(sessionRefresher, "sessionStore", sessionStore);
+
+        TokenDenylist tokenDenylist = new TokenDenylist();
+        ReflectionTestUtils.setField(tokenDenylist, "jwtProperties", jwtProperties);
+        ReflectionTestUtils.setField(tokenDenylist, "stringRedisTemplate", Mockito.mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(tokenDenylist, "listenerContainer", Mockito.mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(tokenDenylist, "meterRegistry", new SimpleMeterRegistry());
+        tokenDenylist.init();
+        // 名单中有其他令牌, 查询会命中同一个桶
+        long expiresAt = System.currentTimeMillis() + jwtProperties.getUserTtl();
+        for (int i = 0; stateless && i < 1000; i++) {
+            tokenDenylist.onMessage(new DefaultMessage(new byte[0],
+                    (UUID.randomUUID() + ":" + expiresAt).getBytes(StandardCharsets.UTF_8)), null);
+        }
+
+        AuthorityRegistry authorityRegistry = new AuthorityRegistry();
+        ReflectionTestUtils.setField(authorityRegistry, "properties", new RbacProperties());
+
+        filter = new JwtAuthenticationTokenFilter();
+        ReflectionTestUtils.setField(filter, "jwtProperties", jwtProperties);
+        ReflectionTestUtils.setField(filter, "jwtCodec", jwtCodec);
+        ReflectionTestUtils.setField(filter, "fastJwtVerifier", new FastJwtVerifier(jwtCodec.getKey()));
+        ReflectionTestUtils.setField(filter, "loginUserNearCache", nearCache);
+        ReflectionTestUtils.setField(filter, "sessionRefresher", sessionRefresher);
+        ReflectionTestUtils.setField(filter, "authMetrics", authMetrics);
+        ReflectionTestUtils.setField(filter, "tokenDenylist", tokenDenylist);
+        ReflectionTestUtils.setField(filter, "authorityRegistry", authorityRegistry);
+        ReflectionTestUtils.setField(filter, "sessionProperties", sessionProperties);
+        ReflectionTestUtils.setField(filter, "sessionStoreBreaker", sessionStoreBreaker);
+        LogThrottle logThrottle = new LogThrottle();
+        ReflectionTestUtils.setField(logThrottle, "properties", new LogProperties());
+        ReflectionTestUtils.setField(filter, "logThrottle", logThrottle);
+
+        String token = jwtCodec.createJWT(jwtProperties.getUserTtl(), stateless
+                ? Map.of("userId", "10086", "sid", "s1", "jti", UUID.randomUUID().toString(), "userName", "benchmark", "auth", "ADMIN")
+                : Map.of("userId", "10086", "sid", "s1"));
+        request = new MockHttpServletRequest("GET", "/user/form");
+        // 同时设置Cookie数组和Cookie请求头, 快速路径和jjwt路径读取的是同一个token
+        request.setCookies(new Cookie("theme", "dark"), new Cookie(jwtProperties.getUserTokenName(), token));
+        response = new MockHttpServletResponse();
+        chain = (req, res) -> { };
+        if (doFilterInternal() == null) {
+            throw new IllegalStateException("过滤器没有完成认证, 基准测试配置有误");
+        }
+    }
+
+    @Benchmark
+    public Object doFilterInternal() throws Exception {
+        filter.doFilter(request, response, chain);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
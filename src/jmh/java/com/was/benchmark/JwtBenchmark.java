@@ -0,0 +1,61 @@
+package com.was.benchmark;
+
+import com.was.pojo.JwtProperties;
+import com.was.utils.FastJwtVerifier;
+import com.was.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT签发与解析
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtProperties jwtProperties;
+    private Map<String, Object> claims;
+    private String token;
+    private FastJwtVerifier fastJwtVerifier;
+
+    @Setup
+    public void setup() {
+        jwtProperties = new JwtProperties();
+        claims = new HashMap<>();
+        claims.put("userId", "10086");
+        token = JwtUtil.createJWT(jwtProperties.getUserSecretKey(), jwtProperties.getUserTtl(), claims);
+        fastJwtVerifier = new FastJwtVerifier(JwtUtil.codecFor(jwtProperties.getUserSecretKey()).getKey());
+    }
+
+    @Benchmark
+    public String createJWT() {
+        return JwtUtil.createJWT(jwtProperties.getUserSecretKey(), jwtProperties.getUserTtl(), claims);
+    }
+
+    @Benchmark
+    public Claims parseJWT() {
+        return JwtUtil.parseJWT(jwtProperties.getUserSecretKey(), token);
+    }
+
+    @Benchmark
+    public FastJwtVerifier.Verification fastVerify() {
+        return fastJwtVerifier.verify(token);
+    }
+}
@@ -0,0 +1,69 @@
+package com.was.benchmark;
+
+import com.was.config.RedisConfiguration;
+import com.was.pojo.entity.LoginUser;
+import com.was.pojo.entity.User;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按RedisConfiguration中的配置序列化/反序列化会话中的LoginUser
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisSerializerBenchmark {
+
+    private RedisSerializer<Object> serializer;
+    private LoginUser loginUser;
+    private byte[] bytes;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        serializer = (RedisSerializer<Object>) new RedisConfiguration()
+                .redisTemplate(Mockito.mock(RedisConnectionFactory.class))
+                .getValueSerializer();
+        loginUser = new LoginUser(User.builder()
+                .id(10086L)
+                .userName("benchmark")
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3ZsKZ5FtGZ7mXoHmQ1jFfrS")
+                .email("benchmark@example.com")
+                .createTime(LocalDateTime.of(2024, 1, 1, 8, 0))
+                .updateTime(LocalDateTime.of(2024, 6, 1, 8, 0))
+                .build());
+        bytes = serializer.serialize(loginUser);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(loginUser);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+
+    @Benchmark
+    public Object roundTrip() {
+        return serializer.deserialize(serializer.serialize(loginUser));
+    }
+}
@@ -0,0 +1,65 @@
+package com.was.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 压力测试参数, 从系统属性读取, 命令行参数原样传给应用
+ *
+ * @param rate       每秒到达的请求数
+ * @param duration   计入结果的压测时长
+ * @param warmup     预热时长, 预热期间的请求不计入结果
+ * @param mix        各类请求的权重
+ * @param users      预先写入数据库的用户数, 登录请求优先使用这些用户
+ * @param resultFile 结果文件
+ * @param appArgs    传给应用的命令行参数
+ */
+record LoadConfig(double rate, Duration duration, Duration warmup, Map<LoadDriver.Operation, Integer> mix,
+                  int users, Path resultFile, List<String> appArgs) {
+
+    static LoadConfig fromSystemProperties(String[] args) {
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "200"));
+        if (rate <= 0) {
+            throw new IllegalArgumentException("loadtest.rate必须大于0: " + rate);
+        }
+        return new LoadConfig(rate,
+                DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "60s")),
+                DurationStyle.detectAndParse(System.getProperty("loadtest.warmup", "10s")),
+                parseMix(System.getProperty("loadtest.mix", "register:5,login:15,form:75,logout:5")),
+                Integer.parseInt(System.getProperty("loadtest.users", "200")),
+                Path.of(System.getProperty("loadtest.resultFile", "target/loadtest-result.json")),
+                // maven把空的loadtest.appArgs也作为一个参数传入, 多个参数写在同一个属性里时以空格分隔
+                Arrays.stream(args).flatMap(arg -> Arrays.stream(arg.trim().split("\\s+")))
+                        .filter(arg -> !arg.isEmpty())
+                        .toList());
+    }
+
+    /**
+     * @param mix 例如 register:5,login:15,form:75,logout:5
+     */
+    static Map<LoadDriver.Operation, Integer> parseMix(String mix) {
+        Map<LoadDriver.Operation, Integer> weights = new EnumMap<>(LoadDriver.Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("loadtest.mix格式错误: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("loadtest.mix权重不能为负数: " + entry);
+            }
+            weights.put(LoadDriver.Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("loadtest.mix权重之和不能为0: " + mix);
+        }
+        return weights;
+    }
+}
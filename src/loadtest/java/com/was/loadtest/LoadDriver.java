@@ -0,0 +1,265 @@
+package com.was.loadtest;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 开放模型的负载发生器
+ * 到达间隔服从指数分布(泊松过程), 每个到达在单独的虚拟线程中执行, 不等待之前的请求完成;
+ * 延迟从计划到达时间算起, 服务端变慢时排队的时间也计入延迟, 不会因为发压方跟着变慢而低估(coordinated omission)
+ */
+final class LoadDriver {
+
+    enum Operation {
+        REGISTER, LOGIN, FORM, LOGOUT
+    }
+
+    static final String PASSWORD = "loadtest123";
+    // 同时在途的请求上限, 超过后新的到达记为丢弃, 防止服务端停顿时压测进程耗尽内存
+    private static final int MAX_IN_FLIGHT = 20_000;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUri;
+    private final HttpClient client;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    // 已注册但没有登录的用户
+    private final ConcurrentLinkedQueue<String> idleUsers = new ConcurrentLinkedQueue<>();
+    // 已登录的会话, 查询时随机取一个, 登出时随机移除一个
+    private final List<Session> sessions = new ArrayList<>();
+    private final ReentrantLock sessionsLock = new ReentrantLock();
+    private final AtomicLong registered = new AtomicLong();
+
+    private record Session(String userName, String token) {
+    }
+
+    LoadDriver(URI baseUri, Map<Operation, Integer> mix, Collection<String> seedUsers) {
+        this.baseUri = baseUri;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.operations = mix.keySet().toArray(Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        idleUsers.addAll(seedUsers);
+    }
+
+    /**
+     * 按给定速率施加负载, 到达窗口结束后等待在途请求完成
+     *
+     * @param rate     每秒到达的请求数
+     * @param duration 到达窗口
+     * @return 这段时间的结果
+     */
+    LoadReport run(double rate, Duration duration) throws InterruptedException {
+        LoadReport report = new LoadReport(duration);
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long end = System.nanoTime() + duration.toNanos();
+            long next = System.nanoTime();
+            while (true) {
+                next += (long) (-Math.log(1 - random.nextDouble()) * meanIntervalNanos);
+                if (next - end >= 0) {
+                    break;
+                }
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (!inFlight.tryAcquire()) {
+                    report.dropped();
+                    continue;
+                }
+                long intendedStart = next;
+                Operation operation = choose(random);
+                executor.execute(() -> {
+                    try {
+                        execute(operation, intendedStart, report);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(REQUEST_TIMEOUT.toSeconds() * 2, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        }
+        return report;
+    }
+
+    private Operation choose(ThreadLocalRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    /**
+     * 缺少前置条件时退化为前一步操作: 没有空闲用户时注册, 没有会话时登录; 结果按实际执行的操作统计
+     */
+    private void execute(Operation operation, long intendedStart, LoadReport report) {
+        String userName = null;
+        Session session = null;
+        if (operation == Operation.FORM || operation == Operation.LOGOUT) {
+            session = operation == Operation.FORM ? randomSession() : removeRandomSession();
+            if (session == null) {
+                operation = Operation.LOGIN;
+            }
+        }
+        if (operation == Operation.LOGIN) {
+            userName = idleUsers.poll();
+            if (userName == null) {
+                operation = Operation.REGISTER;
+            }
+        }
+        if (operation == Operation.REGISTER) {
+            userName = String.format("lt%08d", registered.incrementAndGet());
+        }
+
+        String outcome;
+        try {
+            HttpResponse<String> response = client.send(request(operation, userName, session),
+                    HttpResponse.BodyHandlers.ofString());
+            outcome = outcome(response);
+            if (outcome == null) {
+                onSuccess(operation, userName, session, response.body());
+            } else {
+                onFailure(operation, userName, session);
+            }
+        } catch (HttpTimeoutException e) {
+            outcome = "timeout";
+            onFailure(operation, userName, session);
+        } catch (IOException e) {
+            outcome = "io:" + e.getClass().getSimpleName();
+            onFailure(operation, userName, session);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        report.record(operation, System.nanoTime() - intendedStart, outcome);
+    }
+
+    private HttpRequest request(Operation operation, String userName, Session session) {
+        return switch (operation) {
+            case REGISTER -> post("/auth/register", null, JSON.toJSONString(Map.of(
+                    "userName", userName, "password", PASSWORD, "email", userName + "@loadtest.local")));
+            case LOGIN -> post("/auth/login", null, JSON.toJSONString(Map.of("userName", userName, "password", PASSWORD)));
+            case FORM -> builder("/user/form?limit=20", session.token()).GET().build();
+            case LOGOUT -> post("/auth/logout", session.token(), "");
+        };
+    }
+
+    private HttpRequest post(String path, String token, String body) {
+        return builder(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest.Builder builder(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path)).timeout(REQUEST_TIMEOUT);
+        if (token != null) {
+            builder.header("Cookie", "token=" + token);
+        }
+        return builder;
+    }
+
+    /**
+     * @return 成功时为null, 否则为失败原因
+     */
+    private static String outcome(HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            return "http:" + response.statusCode();
+        }
+        // 业务失败同样返回200, 按Result.code区分
+        return response.body().contains("\"code\":1") ? null : "code:0";
+    }
+
+    private void onSuccess(Operation operation, String userName, Session session, String body) {
+        switch (operation) {
+            case REGISTER -> idleUsers.add(userName);
+            case LOGIN -> {
+                JSONObject data = JSON.parseObject(body).getJSONObject("data");
+                addSession(new Session(userName, data.getString("token")));
+            }
+            case LOGOUT -> idleUsers.add(session.userName());
+            case FORM -> {
+            }
+        }
+    }
+
+    private void onFailure(Operation operation, String userName, Session session) {
+        switch (operation) {
+            case LOGIN -> idleUsers.add(userName);
+            case LOGOUT -> idleUsers.add(session.userName());
+            case REGISTER, FORM -> {
+            }
+        }
+    }
+
+    private void addSession(Session session) {
+        sessionsLock.lock();
+        try {
+            sessions.add(session);
+        } finally {
+            sessionsLock.unlock();
+        }
+    }
+
+    private Session randomSession() {
+        sessionsLock.lock();
+        try {
+            return sessions.isEmpty() ? null : sessions.get(ThreadLocalRandom.current().nextInt(sessions.size()));
+        } finally {
+            sessionsLock.unlock();
+        }
+    }
+
+    private Session removeRandomSession() {
+        sessionsLock.lock();
+        try {
+            if (sessions.isEmpty()) {
+                return null;
+            }
+            // 与最后一个交换后删除, 不移动其他元素
+            int index = ThreadLocalRandom.current().nextInt(sessions.size());
+            Session last = sessions.remove(sessions.size() - 1);
+            return index == sessions.size() ? last : sessions.set(index, last);
+        } finally {
+            sessionsLock.unlock();
+        }
+    }
+}
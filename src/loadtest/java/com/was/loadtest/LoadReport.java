@@ -0,0 +1,165 @@
+package com.was.loadtest;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测结果
+ * 每类请求一个HdrHistogram记录延迟(微秒, 3位有效数字), 失败按原因计数;
+ * 结果文件的字段顺序固定且不含时间戳, 不同构建的结果可以直接diff
+ */
+final class LoadReport {
+
+    private final Duration duration;
+    private final Map<LoadDriver.Operation, Stats> stats = new EnumMap<>(LoadDriver.Operation.class);
+    private final LongAdder dropped = new LongAdder();
+
+    private static final class Stats {
+        private final Histogram latency = new ConcurrentHistogram(3);
+        private final LongAdder succeeded = new LongAdder();
+        private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+    }
+
+    LoadReport(Duration duration) {
+        this.duration = duration;
+        for (LoadDriver.Operation operation : LoadDriver.Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    /**
+     * @param operation    实际执行的操作
+     * @param latencyNanos 从计划到达到收到响应的时间
+     * @param failure      失败原因, 成功时为null
+     */
+    void record(LoadDriver.Operation operation, long latencyNanos, String failure) {
+        Stats operationStats = stats.get(operation);
+        operationStats.latency.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        if (failure == null) {
+            operationStats.succeeded.increment();
+        } else {
+            operationStats.failures.computeIfAbsent(failure, key -> new LongAdder()).increment();
+        }
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    void write(Path file, LoadConfig config) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("rate", config.rate());
+        settings.put("duration", config.duration().toString());
+        settings.put("warmup", config.warmup().toString());
+        settings.put("mix", config.mix().toString());
+        settings.put("users", config.users());
+        settings.put("appArgs", config.appArgs());
+        settings.put("java", System.getProperty("java.version"));
+        settings.put("cpus", Runtime.getRuntime().availableProcessors());
+        result.put("config", settings);
+
+        Histogram all = new Histogram(3);
+        long succeeded = 0;
+        long failed = 0;
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (Map.Entry<LoadDriver.Operation, Stats> entry : stats.entrySet()) {
+            Stats operationStats = entry.getValue();
+            all.add(operationStats.latency);
+            succeeded += operationStats.succeeded.sum();
+            failed += failureCount(operationStats);
+            operations.put(entry.getKey().name().toLowerCase(), summary(operationStats.latency,
+                    operationStats.succeeded.sum(), failures(operationStats)));
+        }
+        Map<String, Object> total = summary(all, succeeded, Map.of());
+        total.put("failed", failed);
+        total.put("dropped", dropped.sum());
+        result.put("total", total);
+        result.put("operations", operations);
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, JSON.toJSONString(result, SerializerFeature.PrettyFormat) + "\n", StandardCharsets.UTF_8);
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "requests", "failed", "req/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)");
+        Histogram all = new Histogram(3);
+        long failed = 0;
+        for (Map.Entry<LoadDriver.Operation, Stats> entry : stats.entrySet()) {
+            Stats operationStats = entry.getValue();
+            all.add(operationStats.latency);
+            failed += failureCount(operationStats);
+            printRow(out, entry.getKey().name().toLowerCase(), operationStats.latency, failureCount(operationStats));
+        }
+        printRow(out, "total", all, failed);
+        if (dropped.sum() > 0) {
+            out.printf("在途请求达到上限, 丢弃了%d个到达%n", dropped.sum());
+        }
+    }
+
+    private void printRow(PrintStream out, String name, Histogram latency, long failed) {
+        out.printf("%-10s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", name, latency.getTotalCount(), failed,
+                throughput(latency.getTotalCount()), millis(latency.getValueAtPercentile(50)),
+                millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                millis(latency.getMaxValue()));
+    }
+
+    private Map<String, Object> summary(Histogram latency, long succeeded, Map<String, Long> failures) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", latency.getTotalCount());
+        summary.put("succeeded", succeeded);
+        summary.put("throughput", round(throughput(succeeded)));
+        summary.put("p50Ms", millis(latency.getValueAtPercentile(50)));
+        summary.put("p99Ms", millis(latency.getValueAtPercentile(99)));
+        summary.put("p999Ms", millis(latency.getValueAtPercentile(99.9)));
+        summary.put("maxMs", millis(latency.getMaxValue()));
+        if (!failures.isEmpty()) {
+            summary.put("failures", failures);
+        }
+        return summary;
+    }
+
+    private static Map<String, Long> failures(Stats operationStats) {
+        Map<String, Long> failures = new TreeMap<>();
+        operationStats.failures.forEach((reason, count) -> failures.put(reason, count.sum()));
+        return failures;
+    }
+
+    private static long failureCount(Stats operationStats) {
+        return operationStats.failures.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * 吞吐量按到达窗口计算, 窗口结束后才完成的请求也计入
+     */
+    private double throughput(long count) {
+        return count * 1000.0 / duration.toMillis();
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
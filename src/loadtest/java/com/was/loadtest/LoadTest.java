@@ -0,0 +1,84 @@
+package com.was.loadtest;
+
+import com.was.WebAuthSystemApplication;
+import com.was.security.UsernameExistenceFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 压力测试入口, 由loadtest profile的exec插件启动
+ * 在同一个进程中启动内嵌redis和应用(H2, 随机端口), 写入种子用户, 预热后施加负载并输出结果
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.fromSystemProperties(args);
+        int redisPort = freePort();
+        RedisServer redis = RedisServer.newRedisServer()
+                .port(redisPort)
+                .bind("127.0.0.1")
+                .setting("save \"\"")
+                .setting("appendonly no")
+                .build();
+        redis.start();
+        ConfigurableApplicationContext context = null;
+        try {
+            List<String> appArgs = new ArrayList<>(List.of(
+                    "--server.port=0",
+                    "--spring.profiles.active=loadtest",
+                    "--spring.data.redis.port=" + redisPort));
+            appArgs.addAll(config.appArgs());
+            context = SpringApplication.run(WebAuthSystemApplication.class, appArgs.toArray(String[]::new));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            LoadDriver driver = new LoadDriver(URI.create("http://127.0.0.1:" + port), config.mix(), seedUsers(context, config.users()));
+            System.out.printf("压测开始: %.0f req/s, 预热%s, 持续%s, 请求比例%s%n",
+                    config.rate(), config.warmup(), config.duration(), config.mix());
+            if (!config.warmup().isZero()) {
+                driver.run(config.rate(), config.warmup());
+            }
+            LoadReport report = driver.run(config.rate(), config.duration());
+            report.print(System.out);
+            report.write(config.resultFile(), config);
+            System.out.println("结果已写入 " + config.resultFile().toAbsolutePath());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            redis.stop();
+        }
+    }
+
+    /**
+     * 直接写入数据库, 密码只哈希一次; 同时写入用户名过滤器, 否则登录会被判定为用户不存在
+     */
+    private static List<String> seedUsers(ConfigurableApplicationContext context, int count) {
+        String hash = context.getBean(PasswordEncoder.class).encode(LoadDriver.PASSWORD);
+        List<String> userNames = new ArrayList<>(count);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String userName = String.format("seed%06d", i);
+            userNames.add(userName);
+            rows.add(new Object[]{userName, hash, userName + "@loadtest.local"});
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate("insert into user(userName, password, email) values (?, ?, ?)", rows);
+        context.getBean(UsernameExistenceFilter.class).addAll(userNames);
+        return userNames;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
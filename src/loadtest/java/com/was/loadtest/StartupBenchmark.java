@@ -0,0 +1,188 @@
+package com.was.loadtest;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.was.WebAuthSystemApplication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import redis.embedded.RedisServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 启动时间对比, 由loadtest profile在verify阶段执行, 需要先用fast-startup profile打包
+ * 每种模式启动若干次独立的JVM, 记录从创建进程到第一次登录成功的时间(包括JVM启动、容器刷新、Tomcat启动和首次请求),
+ * 以及应用自己报告的启动耗时; 数据库和redis与压力测试相同(H2和内嵌redis)
+ */
+public class StartupBenchmark {
+
+    private static final String USER_NAME = "startup";
+    private static final Duration LOGIN_TIMEOUT = Duration.ofMinutes(2);
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+
+    private record Mode(String name, List<String> command) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Path.of(System.getProperty("startup.directory", "target/fast-startup"));
+        Path fatJar = Path.of(System.getProperty("startup.jar", "target/Backend-0.0.1-SNAPSHOT.jar"));
+        int runs = Integer.parseInt(System.getProperty("startup.runs", "3"));
+        Path resultFile = Path.of(System.getProperty("startup.resultFile", "target/startup-result.json"));
+        Path archive = directory.resolve("application.jsa");
+        if (!Files.exists(archive) || !Files.exists(fatJar)) {
+            System.out.println("没有找到fast-startup profile的构建产物, 跳过启动时间对比: " + archive.toAbsolutePath());
+            return;
+        }
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String h2 = Path.of(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        // 子进程的工作目录是解压目录, 与训练运行相同: 归档中记录的是训练时的相对类路径, 不一致时JVM静默地不使用归档
+        String extracted = fatJar.getFileName() + File.pathSeparator + h2;
+        String mainClass = WebAuthSystemApplication.class.getName();
+        List<Mode> modes = List.of(
+                new Mode("jar", List.of(java, "-Dspring.aot.enabled=false", "-Dloader.path=" + h2,
+                        "-cp", fatJar.toAbsolutePath().toString(), "org.springframework.boot.loader.launch.PropertiesLauncher")),
+                new Mode("extracted", List.of(java, "-Dspring.aot.enabled=false", "-cp", extracted, mainClass)),
+                new Mode("aot", List.of(java, "-Dspring.aot.enabled=true", "-cp", extracted, mainClass)),
+                // H2追加在训练运行的类路径之后, 不影响归档的使用
+                new Mode("aot+cds", List.of(java, "-Dspring.aot.enabled=true",
+                        "-XX:SharedArchiveFile=" + archive.toAbsolutePath(), "-cp", extracted, mainClass)));
+
+        Path seed = Files.createTempFile("startup-seed", ".sql").toAbsolutePath();
+        Files.writeString(seed, "insert into user(userName, password, email) values ('" + USER_NAME + "', '"
+                + new BCryptPasswordEncoder().encode(LoadDriver.PASSWORD) + "', 'startup@loadtest.local');\n");
+        String schema = Path.of(StartupBenchmark.class.getResource("/loadtest/schema.sql").toURI()).toUri().toString();
+
+        int redisPort = freePort();
+        RedisServer redis = RedisServer.newRedisServer()
+                .port(redisPort)
+                .bind("127.0.0.1")
+                .setting("save \"\"")
+                .setting("appendonly no")
+                .build();
+        redis.start();
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        Map<String, Object> results = new LinkedHashMap<>();
+        try {
+            System.out.printf("%-10s %14s %14s%n", "mode", "login(ms)", "started(ms)");
+            for (Mode mode : modes) {
+                List<Long> logins = new ArrayList<>();
+                List<Long> started = new ArrayList<>();
+                for (int run = 0; run < runs; run++) {
+                    Path log = resultFile.toAbsolutePath().resolveSibling("startup-" + mode.name().replace('+', '-') + "-" + run + ".log");
+                    logins.add(measure(client, mode, directory, appArgs(redisPort, schema, seed), log));
+                    started.add(startedMillis(log));
+                    System.out.printf("%-10s %14d %14d%n", mode.name(), logins.get(run), started.get(run));
+                }
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("firstLoginMs", median(logins));
+                result.put("startedMs", median(started));
+                result.put("runs", logins);
+                results.put(mode.name(), result);
+            }
+        } finally {
+            redis.stop();
+            Files.deleteIfExists(seed);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("java", System.getProperty("java.version"));
+        report.put("cpus", Runtime.getRuntime().availableProcessors());
+        report.put("runs", runs);
+        report.put("modes", results);
+        Files.writeString(resultFile, JSON.toJSONString(report, SerializerFeature.PrettyFormat) + "\n", StandardCharsets.UTF_8);
+        System.out.println("结果(中位数)已写入 " + resultFile.toAbsolutePath());
+    }
+
+    private static List<String> appArgs(int redisPort, String schema, Path seed) throws IOException {
+        return List.of(
+                "--server.port=" + freePort(),
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.url=jdbc:h2:mem:was;MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.sql.init.mode=always",
+                "--spring.sql.init.schema-locations=" + schema + ",classpath:db/rbac.sql",
+                "--spring.sql.init.data-locations=" + seed.toUri(),
+                "--spring.data.redis.host=127.0.0.1",
+                "--spring.data.redis.port=" + redisPort,
+                "--spring.data.redis.password=",
+                "--was.login-throttle.enabled=false");
+    }
+
+    /**
+     * @return 从创建进程到第一次登录成功的毫秒数
+     */
+    private static long measure(HttpClient client, Mode mode, Path directory, List<String> appArgs, Path log) throws Exception {
+        int port = Integer.parseInt(appArgs.get(0).substring("--server.port=".length()));
+        HttpRequest login = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(JSON.toJSONString(
+                        Map.of("userName", USER_NAME, "password", LoadDriver.PASSWORD))))
+                .build();
+        List<String> command = new ArrayList<>(mode.command());
+        command.addAll(appArgs);
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            long deadline = start + LOGIN_TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(mode.name() + "启动失败, 见" + log.toAbsolutePath());
+                }
+                try {
+                    HttpResponse<String> response = client.send(login, HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() == 200 && response.body().contains("\"code\":1")) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException e) {
+                    // 端口还没有监听
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(mode.name() + "在" + LOGIN_TIMEOUT + "内没有登录成功, 见" + log.toAbsolutePath());
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static long startedMillis(Path log) throws IOException {
+        Matcher matcher = STARTED.matcher(Files.readString(log));
+        return matcher.find() ? Math.round(Double.parseDouble(matcher.group(1)) * 1000) : -1;
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = values.stream().sorted().toList();
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+create table if not exists `user` (
+    id bigint auto_increment primary key,
+    userName varchar(20) not null unique,
+    password varchar(100) not null,
+    email varchar(100),
+    create_time timestamp default current_timestamp,
+    update_time timestamp default current_timestamp
+);
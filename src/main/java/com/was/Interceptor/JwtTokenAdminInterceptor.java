@@ -3,13 +3,14 @@ package com.was.Interceptor;
 
 import com.was.pojo.JwtProperties;
 import com.was.pojo.entity.LoginUser;
+import com.was.security.AuthorityRegistry;
+import com.was.session.SessionStore;
 import com.was.utils.JwtUtil;
 import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -27,7 +28,9 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
     @Autowired
     private JwtProperties jwtProperties;
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private SessionStore sessionStore;
+    @Autowired
+    private AuthorityRegistry authorityRegistry;
 
     /**
      * 校验jwt
@@ -51,23 +54,24 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
             //没有token，直接放行
             return true;
         }
-        //解析token获取其中的userid
-        long userId;
+        //解析token获取其中的userid和会话id
+        String userId;
+        String sessionId;
         try {
             Claims claims = JwtUtil.parseJWT(jwtProperties.getUserSecretKey(), token);
-            userId = Long.parseLong(claims.get("userId").toString());
+            userId = claims.get("userId").toString();
+            sessionId = claims.get("sid", String.class);
         } catch (Exception e) {
             throw new RuntimeException("token非法");
         }
-        //从redis中获取用户信息
-        LoginUser loginUser = (LoginUser) redisTemplate.opsForValue().get(userId);
+        //从会话存储中获取用户信息
+        LoginUser loginUser = sessionId == null ? null : sessionStore.get(userId, sessionId);
         if (loginUser == null) {
             throw new RuntimeException("用户未登录");
         }
-        //存入SecurityContextHolder
-        //TODO:获取权限信息封装到AuthenticationToken
+        //按角色获取权限信息，封装到AuthenticationToken后存入SecurityContextHolder
         UsernamePasswordAuthenticationToken authenticationToken =
-                new UsernamePasswordAuthenticationToken(loginUser, null, null);
+                new UsernamePasswordAuthenticationToken(loginUser, null, authorityRegistry.resolve(loginUser));
         SecurityContextHolder.getContext().setAuthentication(authenticationToken);
         //放行
         return true;
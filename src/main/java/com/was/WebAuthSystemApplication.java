@@ -2,8 +2,10 @@ package com.was;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling //开启定时任务
 public class WebAuthSystemApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,284 @@
+package com.was.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.was.pojo.Result;
+import com.was.pojo.UserPageCacheProperties;
+import com.was.pojo.dto.UserPageQueryDTO;
+import com.was.service.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 用户分页接口的响应缓存
+ * 用户表只在注册和批量导入时写入, 写入后用redis INCR把共享的表版本号加一, 并把新版本号通过redis频道通知其他节点;
+ * 各节点在本地保存版本号, 订阅成功时和每隔ttl从redis读取一次, 修正丢失的通知.
+ * ETag由 (表版本号, 分页和过滤条件) 计算, 不需要响应内容, 客户端带着相同的ETag请求时直接返回304, 不查询数据库也不序列化;
+ * 每一页按同样的键缓存序列化后的JSON字节、gzip压缩后的字节, 版本号不变时直接返回缓存的字节.
+ * redis不可用导致版本号未知(启动时读取失败、写入后INCR失败)时不缓存, ETag改为按响应内容计算, 直到版本号恢复
+ */
+@Component
+@Slf4j
+public class UserPageCache implements MessageListener, SubscriptionListener {
+
+    @Autowired
+    private UserPageCacheProperties properties;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 本地保存的共享表版本号, -1表示未知
+    private final AtomicLong version = new AtomicLong(-1);
+    // 写入后INCR失败, 共享版本号没有更新, 等待重试
+    private volatile boolean bumpPending;
+    private Cache<PageKey, Page> cache;
+    private Counter notModified;
+
+    /**
+     * 序列化后的一页
+     *
+     * @param etag     未压缩响应的强ETag
+     * @param body     未压缩的JSON
+     * @param gzipBody gzip压缩后的JSON, 响应体较小时为null
+     */
+    public record Page(String etag, byte[] body, byte[] gzipBody) {
+
+        /**
+         * @return 压缩响应的强ETag, 与未压缩的响应区分
+         */
+        public String gzipEtag() {
+            return UserPageCache.gzipEtag(etag);
+        }
+    }
+
+    /**
+     * @param etag 未压缩响应的强ETag
+     * @return 压缩响应的强ETag
+     */
+    public static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    private record PageKey(long version, String pageToken, Integer limit, String usernamePrefix,
+                           LocalDateTime createdFrom, LocalDateTime createdTo) {
+    }
+
+    @PostConstruct
+    public void init() {
+        notModified = Counter.builder("was.user.page.not.modified")
+                .description("用户分页接口按ETag返回304的次数")
+                .register(meterRegistry);
+        // 关闭缓存时ETag仍然按版本号计算, 同样需要接收版本号
+        listenerContainer.addMessageListener(this, new ChannelTopic(properties.getChannel()));
+        if (!properties.isEnabled()) {
+            log.info("用户分页响应缓存已关闭");
+            return;
+        }
+        cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userPageCache");
+    }
+
+    /**
+     * 按当前版本号计算一页的ETag, 不查询数据库
+     *
+     * @param query 分页和过滤条件
+     * @return 未压缩响应的ETag, 版本号未知时返回null, 只能在响应生成之后按内容计算
+     */
+    public String etag(UserPageQueryDTO query) {
+        long current = currentVersion();
+        return current < 0 ? null : etag(key(current, query));
+    }
+
+    /**
+     * 获取一页用户的响应, 缓存中没有当前版本时查询数据库并序列化
+     * 同一页的并发未命中只会查询一次数据库
+     *
+     * @param query 分页和过滤条件
+     * @return 序列化后的响应
+     * @throws IllegalArgumentException 分页游标不合法, 不缓存
+     */
+    public Page get(UserPageQueryDTO query) {
+        // 先读版本号再查询: 写入在INCR之前已经提交, 查到的数据不会比版本号旧; 查询期间发生写入时,
+        // 结果记在旧版本下, 之后的请求按新版本重新查询
+        long current = currentVersion();
+        if (current < 0) {
+            return render(query, null);
+        }
+        PageKey key = key(current, query);
+        if (cache == null) {
+            return render(query, key);
+        }
+        return cache.get(key, k -> render(query, k));
+    }
+
+    /**
+     * 客户端的ETag与当前响应一致, 返回304
+     */
+    public void recordNotModified() {
+        notModified.increment();
+    }
+
+    /**
+     * 用户表写入(事务提交)后调用, 把共享版本号加一并通知其他节点
+     * 不论本节点是否开启缓存都要通知; 失败时不影响已经提交的写入, 本节点在重试成功前不缓存也不按版本号返回304
+     */
+    public void invalidate() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+        bumpPending = true;
+        bumpShared();
+    }
+
+    /**
+     * 接收其他节点的变更通知, 消息内容是新的版本号
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            advance(Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException e) {
+            log.warn("无法识别的用户表变更通知");
+        }
+    }
+
+    /**
+     * 订阅(包括断线重连后的重新订阅)确认后读取共享版本号, 补齐断线期间丢失的通知
+     */
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        syncVersion();
+    }
+
+    /**
+     * 定期读取共享版本号, 修正丢失的通知, 并重试失败的INCR
+     */
+    @Scheduled(fixedDelayString = "#{@userPageCacheProperties.ttl.toMillis()}")
+    public void syncVersion() {
+        if (bumpPending && !bumpShared()) {
+            return;
+        }
+        try {
+            String shared = stringRedisTemplate.opsForValue().get(properties.getVersionKey());
+            advance(shared == null ? 0 : Long.parseLong(shared));
+        } catch (Exception e) {
+            log.warn("读取用户表版本号失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return 是否成功
+     */
+    private boolean bumpShared() {
+        try {
+            Long next = stringRedisTemplate.opsForValue().increment(properties.getVersionKey());
+            if (next == null) {
+                bumpPending = true;
+                return false;
+            }
+            bumpPending = false;
+            advance(next);
+            stringRedisTemplate.convertAndSend(properties.getChannel(), String.valueOf(next));
+            return true;
+        } catch (Exception e) {
+            bumpPending = true;
+            log.warn("更新用户表版本号失败, 稍后重试: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void advance(long next) {
+        long previous = version.getAndAccumulate(next, Math::max);
+        if (next > previous && cache != null) {
+            // 旧版本的条目不会再被读到, 立即释放
+            cache.invalidateAll();
+        }
+    }
+
+    private long currentVersion() {
+        return bumpPending ? -1 : version.get();
+    }
+
+    private static PageKey key(long version, UserPageQueryDTO query) {
+        return new PageKey(version, query.getPageToken(), query.getLimit(), query.getUsernamePrefix(),
+                query.getCreatedFrom(), query.getCreatedTo());
+    }
+
+    /**
+     * @param key 版本号和查询条件, 版本号未知时为null, 按响应内容计算ETag
+     */
+    private Page render(UserPageQueryDTO query, PageKey key) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(Result.success(userService.pageUsers(query)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化用户分页失败", e);
+        }
+        byte[] gzipBody = body.length >= properties.getGzipMinSize() ? gzip(body) : null;
+        return new Page(key == null ? digest(body) : etag(key), body, gzipBody);
+    }
+
+    /**
+     * 各节点的版本号来自同一个redis计数器, 同样的版本和查询条件得到同样的ETag
+     */
+    private static String etag(PageKey key) {
+        return digest(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            // 取前96位, 足以区分同一地址的不同内容
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 12)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
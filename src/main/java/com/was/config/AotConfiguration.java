@@ -0,0 +1,157 @@
+package com.was.config;
+
+import com.was.pojo.Result;
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.mybatis.spring.mapper.MapperScannerConfigurer;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.aot.BeanRegistrationExcludeFilter;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spring AOT(快速启动构建, mvn -Pfast-startup package)和GraalVM原生镜像需要的补充
+ * 普通JVM启动时只有MapperFactoryBean的类型推断生效, 其他部分只在构建期执行
+ */
+@Configuration
+@ImportRuntimeHints(AotConfiguration.WasRuntimeHints.class)
+public class AotConfiguration {
+
+    /**
+     * MyBatis mapper的AOT处理
+     * 运行期由AOT生成的代码注册mapper, 不再执行MapperScannerConfigurer扫描, 否则同名bean冲突
+     *
+     * @return MybatisAotProcessor
+     */
+    @Bean
+    public static MybatisAotProcessor mybatisAotProcessor() {
+        return new MybatisAotProcessor();
+    }
+
+    static class MybatisAotProcessor implements MergedBeanDefinitionPostProcessor,
+            BeanRegistrationExcludeFilter, BeanFactoryInitializationAotProcessor {
+
+        /**
+         * 扫描得到的定义只有MapperFactoryBean原始类型, AOT生成的代码中按mapper接口补全泛型, 运行期按类型注入时不需要提前实例化
+         */
+        @Override
+        public void postProcessMergedBeanDefinition(RootBeanDefinition beanDefinition, Class<?> beanType, String beanName) {
+            if (!MapperFactoryBean.class.isAssignableFrom(beanType) || beanDefinition.getResolvableType().hasResolvableGenerics()) {
+                return;
+            }
+            Class<?> mapperInterface = mapperInterface(beanDefinition);
+            if (mapperInterface != null) {
+                // 构造参数改为Class, AOT生成的实例化代码才能直接使用
+                ConstructorArgumentValues constructorArgumentValues = new ConstructorArgumentValues();
+                constructorArgumentValues.addGenericArgumentValue(mapperInterface);
+                beanDefinition.setConstructorArgumentValues(constructorArgumentValues);
+                beanDefinition.setTargetType(ResolvableType.forClassWithGenerics(beanType, mapperInterface));
+            }
+        }
+
+        @Override
+        public boolean isExcludedFromAotProcessing(RegisteredBean registeredBean) {
+            return MapperScannerConfigurer.class.isAssignableFrom(registeredBean.getBeanClass());
+        }
+
+        /**
+         * 原生镜像中mapper由JDK动态代理实现, 方法签名中的类型通过反射读写
+         */
+        @Override
+        public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+            List<Class<?>> mapperInterfaces = new ArrayList<>();
+            for (String beanName : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+                if (!MapperFactoryBean.class.getName().equals(beanDefinition.getBeanClassName())) {
+                    continue;
+                }
+                Class<?> mapperInterface = mapperInterface(beanDefinition);
+                if (mapperInterface != null) {
+                    mapperInterfaces.add(mapperInterface);
+                }
+            }
+            if (mapperInterfaces.isEmpty()) {
+                return null;
+            }
+            return (generationContext, beanFactoryInitializationCode) -> {
+                RuntimeHints hints = generationContext.getRuntimeHints();
+                for (Class<?> mapperInterface : mapperInterfaces) {
+                    hints.proxies().registerJdkProxy(mapperInterface);
+                    hints.reflection().registerType(mapperInterface, MemberCategory.INVOKE_PUBLIC_METHODS);
+                    for (Method method : mapperInterface.getMethods()) {
+                        registerBindingType(hints, ResolvableType.forMethodReturnType(method));
+                        for (int i = 0; i < method.getParameterCount(); i++) {
+                            registerBindingType(hints, ResolvableType.forMethodParameter(method, i));
+                        }
+                    }
+                }
+            };
+        }
+
+        private static void registerBindingType(RuntimeHints hints, ResolvableType type) {
+            Class<?> resolved = type.resolve();
+            if (resolved == null) {
+                return;
+            }
+            if (resolved.getName().startsWith("com.was.")) {
+                hints.reflection().registerType(resolved, MemberCategory.values());
+            }
+            for (ResolvableType generic : type.getGenerics()) {
+                registerBindingType(hints, generic);
+            }
+        }
+
+        private static Class<?> mapperInterface(BeanDefinition beanDefinition) {
+            PropertyValue mapperInterface = beanDefinition.getPropertyValues().getPropertyValue("mapperInterface");
+            if (mapperInterface != null && mapperInterface.getValue() instanceof Class<?> type) {
+                return type;
+            }
+            // 扫描阶段构造参数是接口的全限定名
+            List<ConstructorArgumentValues.ValueHolder> arguments = beanDefinition.getConstructorArgumentValues().getGenericArgumentValues();
+            if (!arguments.isEmpty() && arguments.get(0).getValue() instanceof String name) {
+                return ClassUtils.resolveClassName(name, AotConfiguration.class.getClassLoader());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 原生镜像中反射和资源加载需要的提示
+     * - com.was.pojo下的类: fastjson序列化(Result、旧版会话数据)和MyBatis结果映射通过反射访问lombok生成的构造器和getter/setter
+     * - mapper XML、lua脚本和初始化SQL按通配符加载
+     */
+    static class WasRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+            scanner.addIncludeFilter((metadataReader, metadataReaderFactory) -> true);
+            for (BeanDefinition candidate : scanner.findCandidateComponents(ClassUtils.getPackageName(Result.class))) {
+                hints.reflection().registerType(ClassUtils.resolveClassName(candidate.getBeanClassName(), classLoader),
+                        MemberCategory.values());
+            }
+            hints.resources()
+                    .registerPattern("mapper/*.xml")
+                    .registerPattern("lua/*.lua")
+                    .registerPattern("db/*.sql");
+        }
+    }
+}
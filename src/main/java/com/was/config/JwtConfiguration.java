@@ -0,0 +1,36 @@
+package com.was.config;
+
+import com.was.pojo.JwtProperties;
+import com.was.utils.FastJwtVerifier;
+import com.was.utils.JwtCodec;
+import com.was.utils.JwtUtil;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JwtConfiguration {
+
+    /**
+     * JWT编解码器Bean
+     * 根据JwtProperties构建一次, 与JwtUtil静态方法共享同一个实例
+     *
+     * @param jwtProperties jwt配置
+     * @return JwtCodec实例
+     */
+    @Bean
+    public JwtCodec jwtCodec(JwtProperties jwtProperties) {
+        return JwtUtil.codecFor(jwtProperties.getUserSecretKey());
+    }
+
+    /**
+     * HS256快速校验器Bean
+     * 与JwtCodec共用同一个签名密钥
+     *
+     * @param jwtCodec jwt编解码器
+     * @return FastJwtVerifier实例
+     */
+    @Bean
+    public FastJwtVerifier fastJwtVerifier(JwtCodec jwtCodec) {
+        return new FastJwtVerifier(jwtCodec.getKey());
+    }
+}
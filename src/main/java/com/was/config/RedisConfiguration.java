@@ -1,15 +1,23 @@
 package com.was.config;
 
 import com.alibaba.fastjson.support.spring.GenericFastJsonRedisSerializer;
+import com.was.session.SessionRedisSerializer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
+@Slf4j
 public class RedisConfiguration {
 
+    // 消息监听容器启动失败后的重试间隔（毫秒）
+    private static final long LISTENER_RETRY_INTERVAL = 5000;
+
     /**
      * 自定义redisTemplate配置
      * 使用的序列化方式
@@ -23,14 +31,61 @@ public class RedisConfiguration {
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         //key值使用spring默认的StringRedisSerializer
         redisTemplate.setKeySerializer(new StringRedisSerializer());
-        //value值使用fastjson的GenericFastJsonRedisSerializer
+        //value值中的会话(LoginUser)使用紧凑二进制格式，其他类型及旧数据仍使用fastjson的GenericFastJsonRedisSerializer
         GenericFastJsonRedisSerializer fastJsonRedisSerializer = new GenericFastJsonRedisSerializer();
-        redisTemplate.setValueSerializer(fastJsonRedisSerializer);
+        SessionRedisSerializer sessionRedisSerializer = new SessionRedisSerializer(fastJsonRedisSerializer);
+        redisTemplate.setValueSerializer(sessionRedisSerializer);
         //以下是hash序列化的配置
         redisTemplate.setHashKeySerializer(new StringRedisSerializer());
-        redisTemplate.setHashValueSerializer(fastJsonRedisSerializer);
+        redisTemplate.setHashValueSerializer(sessionRedisSerializer);
 
         return redisTemplate;
     }
 
+    /**
+     * redis消息监听容器
+     * 用于接收各节点之间广播的缓存失效通知
+     *
+     * @param redisConnectionFactory redis连接工厂
+     * @return 消息监听容器
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            //不随容器同步启动，避免redis不可用时应用无法启动
+            @Override
+            public boolean isAutoStartup() {
+                return false;
+            }
+        };
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
+    /**
+     * 应用启动后在后台线程中启动消息监听容器
+     * 连接失败时按固定间隔重试，直到订阅成功
+     *
+     * @param container 消息监听容器
+     * @return ApplicationRunner
+     */
+    @Bean
+    public ApplicationRunner redisListenerStarter(RedisMessageListenerContainer container) {
+        return args -> Thread.ofPlatform().daemon().name("redis-listener-starter").start(() -> {
+            while (!container.isRunning() && !Thread.currentThread().isInterrupted()) {
+                try {
+                    container.start();
+                } catch (Exception e) {
+                    log.warn("redis消息监听启动失败, {}ms后重试: {}", LISTENER_RETRY_INTERVAL, e.getMessage());
+                    container.stop();
+                    try {
+                        Thread.sleep(LISTENER_RETRY_INTERVAL);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
 }
@@ -2,32 +2,64 @@ package com.was.config;
 
 import com.was.Interceptor.JwtTokenAdminInterceptor;
 import com.was.filter.JwtAuthenticationTokenFilter;
+import com.was.pojo.MetricsProperties;
+import com.was.pojo.PasswordProperties;
+import com.was.pojo.RbacProperties;
+import com.was.security.BoundedPasswordEncoder;
+import com.was.security.PermissionAuthorizationManager;
+import com.was.security.RequiresPermission;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationManagers;
+import org.springframework.security.authorization.SingleResultAuthorizationManager;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeMethodInterceptor;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.IpAddressAuthorizationManager;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
+@EnableMethodSecurity
 public class SecurityConfig{
 
+    /**
+     * 不需要登录的接口, 会话存储不可用时JwtAuthenticationTokenFilter也按未登录放行
+     */
+    public static final String[] PERMIT_ALL_PATHS = {"/user/home", "/auth/check-username", "/error", "/actuator/health"};
+
     @Autowired
     private JwtAuthenticationTokenFilter jwtTokenAdminInterceptor;
+    @Autowired
+    private RbacProperties rbacProperties;
+    @Autowired
+    private MetricsProperties metricsProperties;
     /**
      * 密码编码器Bean
-     * 使用BCrypt算法对密码进行加密和匹配
-     * @return BCryptPasswordEncoder实例
+     * 使用BCrypt算法对密码进行加密和匹配，计算在有界的专用线程池中执行
+     * @param passwordProperties 密码哈希配置
+     * @param meterRegistry 指标注册器
+     * @return BoundedPasswordEncoder实例
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordProperties passwordProperties, MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(passwordProperties, meterRegistry);
     }
 
     /**
@@ -54,10 +86,14 @@ public class SecurityConfig{
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests(authorize -> authorize
-                        .requestMatchers("/user/home").permitAll()// 允许home接口访问
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll() // 流式响应完成后的异步分派, 原请求已经鉴权
+                        .requestMatchers(PERMIT_ALL_PATHS).permitAll() // home接口、用户名可用性检查、错误页面和健康检查
                         .requestMatchers("/auth/login").anonymous()  // 只允许匿名用户（未登录）访问，已登录用户无法访问登录页面
                         .requestMatchers("/auth/register").anonymous()// 只允许匿名用户（未登录）访问，已登录用户无法访问注册页面
-                        .requestMatchers("/error").permitAll()  // 允许错误页面
+                        .requestMatchers("/actuator/prometheus", "/actuator/metrics/**").access(internalNetwork()) // 指标只允许内网抓取
+                        .requestMatchers("/user/form").access(permission("user:read")) // 以下按权限位鉴权
+                        .requestMatchers("/user/export").access(permission("user:export"))
+                        .requestMatchers("/user/import").access(adminPermission("user:import"))
                         .anyRequest().authenticated() // 其他请求都需要认证
                 )
                 .csrf(AbstractHttpConfigurer::disable) // 禁用CSRF保护, 因为使用JWT进行认证
@@ -70,4 +106,45 @@ public class SecurityConfig{
 
         return http.build();
     }
+
+    /**
+     * 方法级鉴权, 拦截标注了{@link RequiresPermission}的方法
+     * @param rbacProperties 角色鉴权配置, 第一次调用时才获取
+     * @return 方法鉴权切面
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor requiresPermissionAdvisor(ObjectProvider<RbacProperties> rbacProperties) {
+        return new AuthorizationManagerBeforeMethodInterceptor(
+                AnnotationMatchingPointcut.forMethodAnnotation(RequiresPermission.class),
+                new PermissionAuthorizationManager.Methods(() -> rbacProperties.getObject().isEnabled()));
+    }
+
+    /**
+     * 请求来自was.metrics.allowed-networks中的网段
+     */
+    @SuppressWarnings("unchecked")
+    private AuthorizationManager<RequestAuthorizationContext> internalNetwork() {
+        return AuthorizationManagers.anyOf(metricsProperties.getAllowedNetworks().stream()
+                .map(IpAddressAuthorizationManager::hasIpAddress)
+                .toArray(AuthorizationManager[]::new));
+    }
+
+    /**
+     * 默认角色拥有的权限, 关闭角色鉴权时只要求登录
+     */
+    private AuthorizationManager<RequestAuthorizationContext> permission(String permission) {
+        return rbacProperties.isEnabled()
+                ? PermissionAuthorizationManager.hasPermission(permission)
+                : AuthenticatedAuthorizationManager.authenticated();
+    }
+
+    /**
+     * 只授予管理员的权限, 关闭角色鉴权时没有人拥有, 一律拒绝, 与{@link PermissionAuthorizationManager.Methods}一致
+     */
+    private AuthorizationManager<RequestAuthorizationContext> adminPermission(String permission) {
+        return rbacProperties.isEnabled()
+                ? PermissionAuthorizationManager.hasPermission(permission)
+                : SingleResultAuthorizationManager.denyAll();
+    }
 }
@@ -0,0 +1,35 @@
+package com.was.config;
+
+import com.was.pojo.SessionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import com.was.session.OffHeapSessionStore;
+import com.was.session.RedisSessionStore;
+import com.was.session.SessionLookupBatcher;
+import com.was.session.SessionStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+
+@Configuration
+public class SessionStoreConfiguration {
+
+    /**
+     * 会话存储
+     * 按was.session.store选择实现, 默认redis
+     * 依赖通过构造器传入: AOT构建时只能看到返回类型SessionStore, 实现类上的@Autowired和@PostConstruct不会被处理
+     *
+     * @param sessionProperties 会话配置
+     * @param redisTemplate redis模板
+     * @param sessionLookupBatcher 会话查询合并器
+     * @param meterRegistry 指标注册表
+     * @return 会话存储
+     */
+    @Bean
+    public SessionStore sessionStore(SessionProperties sessionProperties, RedisTemplate<String, Object> redisTemplate,
+                                     SessionLookupBatcher sessionLookupBatcher, MeterRegistry meterRegistry) {
+        return switch (sessionProperties.getStore()) {
+            case REDIS -> new RedisSessionStore(redisTemplate, sessionLookupBatcher);
+            case LOCAL -> new OffHeapSessionStore(sessionProperties, meterRegistry);
+        };
+    }
+}
@@ -2,9 +2,18 @@ package com.was.config;
 
 
 import com.was.Interceptor.JwtTokenAdminInterceptor;
+import com.was.pojo.ExportProperties;
+import com.was.pojo.UserImportProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurationSupport;
 
@@ -16,6 +25,42 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurationSupp
 @Slf4j
 public class WebMvcConfiguration extends WebMvcConfigurationSupport {
 
+    @Autowired
+    private ExportProperties exportProperties;
+    @Autowired
+    private UserImportProperties userImportProperties;
+    @Autowired
+    private Environment environment;
+
+    /**
+     * 异步请求(StreamingResponseBody导出和导入)使用的线程池
+     * 线程数与最大导出、导入任务数之和一致, 超出的请求在控制器中直接拒绝,
+     * 开启虚拟线程时每个任务使用一个虚拟线程, 并发数同样由控制器限制
+     */
+    @Bean
+    public AsyncTaskExecutor streamingTaskExecutor() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("streaming-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        int threads = exportProperties.getMaxConcurrent() + userImportProperties.getMaxConcurrent();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("streaming-");
+        executor.setDaemon(true);
+        return executor;
+    }
+
+    @Override
+    protected void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingTaskExecutor());
+        // 超时时间取导出和导入中较长的一个
+        configurer.setDefaultTimeout(Math.max(exportProperties.getTimeout().toMillis(),
+                userImportProperties.getTimeout().toMillis()));
+    }
+
 //    @Autowired
 //    private JwtTokenAdminInterceptor jwtTokenAdminInterceptor;
 //
@@ -0,0 +1,93 @@
+package com.was.controller;
+
+import com.was.diagnostics.AuditLog;
+import com.was.pojo.Result;
+import com.was.pojo.vo.RoleVO;
+import com.was.service.RoleService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 角色权限和会话管理, 权限检查见RoleServiceImpl上的@RequiresPermission
+ */
+@RestController
+@RequestMapping("/admin")
+@Slf4j
+public class AdminController {
+
+    @Autowired
+    private RoleService roleService;
+    @Autowired
+    private AuditLog auditLog;
+
+    /**
+     *  列出全部角色及其权限
+     * @return 角色列表
+     */
+    @GetMapping("/roles")
+    public Result<List<RoleVO>> roles() {
+        return Result.success(roleService.listRoles());
+    }
+
+    /**
+     *  替换角色的全部权限
+     * @param code 角色编码
+     * @param permissions 权限编码
+     * @return 修改结果
+     */
+    @PutMapping("/roles/{code}/permissions")
+    public Result<Void> updateRolePermissions(@PathVariable String code, @RequestBody List<String> permissions) {
+        boolean success = false;
+        try {
+            roleService.updateRolePermissions(code, permissions);
+            success = true;
+        } finally {
+            auditLog.record(AuditLog.Event.UPDATE_ROLE_PERMISSIONS, null, success, code + " -> " + permissions);
+        }
+        return Result.success();
+    }
+
+    /**
+     *  替换用户的全部角色, 该用户需要重新登录
+     * @param userId 用户id
+     * @param roles 角色编码
+     * @return 修改结果
+     */
+    @PutMapping("/users/{userId}/roles")
+    public Result<Void> updateUserRoles(@PathVariable Long userId, @RequestBody List<String> roles) {
+        boolean success = false;
+        try {
+            roleService.updateUserRoles(userId, roles);
+            success = true;
+        } finally {
+            auditLog.record(AuditLog.Event.UPDATE_USER_ROLES, null, success, userId + " -> " + roles);
+        }
+        return Result.success();
+    }
+
+    /**
+     *  批量注销用户在所有设备上的会话
+     * @param userIds 用户id
+     * @return 注销的会话数
+     */
+    @PostMapping("/sessions/revoke")
+    public Result<Integer> revokeSessions(@RequestBody List<Long> userIds) {
+        boolean success = false;
+        try {
+            Result<Integer> result = Result.success(roleService.revokeSessions(userIds));
+            success = true;
+            return result;
+        } finally {
+            auditLog.record(AuditLog.Event.REVOKE_USER_SESSIONS, null, success, "userIds=" + userIds);
+        }
+    }
+}
@@ -1,22 +1,30 @@
 package com.was.controller;
 
+import com.was.diagnostics.AuditLog;
 import com.was.pojo.JwtProperties;
 import com.was.pojo.Result;
 import com.was.pojo.dto.LoginDTO;
 import com.was.pojo.dto.RegisterDTO;
 import com.was.pojo.vo.LoginVO;
+import com.was.pojo.vo.SessionVO;
 import com.was.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseCookie;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 import java.util.Objects;
 
 @RestController
@@ -28,6 +36,8 @@ public class AuthController {
     private AuthService authService;
     @Autowired
     private JwtProperties jwtProperties;
+    @Autowired
+    private AuditLog auditLog;
 
     /**
      *  注册
@@ -36,25 +46,49 @@ public class AuthController {
      */
     @PostMapping("/register")
     public Result<Void> register(@Valid @RequestBody RegisterDTO registerDTO, BindingResult bindingResult) {
-        log.info("用户注册: {}", registerDTO);
         // 检查是否有验证错误
         if (bindingResult.hasErrors()) {
             String errorMessage = Objects.requireNonNull(bindingResult.getFieldError()).getDefaultMessage();
+            auditLog.record(AuditLog.Event.REGISTER, registerDTO.getUserName(), false, errorMessage);
             return Result.error(errorMessage);
         }
-        authService.register(registerDTO);
+        boolean success = false;
+        try {
+            authService.register(registerDTO);
+            success = true;
+        } finally {
+            auditLog.record(AuditLog.Event.REGISTER, registerDTO.getUserName(), success, null);
+        }
         return Result.success();
     }
 
+    /**
+     *  检查用户名是否可用
+     * @param userName 用户名
+     * @return true表示可以注册
+     */
+    @GetMapping("/check-username")
+    public Result<Boolean> checkUserName(@RequestParam String userName) {
+        if (userName.isBlank() || userName.length() < 4 || userName.length() > 20) {
+            return Result.error("用户名长度必须在4-20之间");
+        }
+        return Result.success(authService.isUserNameAvailable(userName));
+    }
+
     /**
      *  登录
      * @param loginDTO 登录参数
      * @return 登录结果
      */
     @PostMapping("/login")
-    public Result<LoginVO> login(@RequestBody LoginDTO loginDTO, HttpServletResponse response){
-        log.info("用户登录: {}", loginDTO);
-        return authService.login(loginDTO, response);
+    public Result<LoginVO> login(@RequestBody LoginDTO loginDTO, HttpServletRequest request, HttpServletResponse response){
+        Result<LoginVO> result = null;
+        try {
+            result = authService.login(loginDTO, request, response);
+            return result;
+        } finally {
+            auditLog.record(AuditLog.Event.LOGIN, loginDTO.getUserName(), result);
+        }
 
 //        //登录成功后，生成jwt令牌
 //        Map<String, Object> claims = new HashMap<>();
@@ -87,7 +121,46 @@ public class AuthController {
      */
     @PostMapping("/logout")
     public Result<Void> logout(HttpServletResponse response) {
-        log.info("用户登出");
+        clearTokenCookie(response);
+        Result<Void> result = authService.logout();
+        auditLog.record(AuditLog.Event.LOGOUT, null, result);
+        return result;
+    }
+
+    /**
+     *  注销所有设备上的会话
+     * @return 注销结果
+     */
+    @PostMapping("/logout-all")
+    public Result<Void> logoutAll(HttpServletResponse response) {
+        clearTokenCookie(response);
+        Result<Void> result = authService.logoutAll();
+        auditLog.record(AuditLog.Event.LOGOUT_ALL, null, result);
+        return result;
+    }
+
+    /**
+     *  列出当前用户的全部会话
+     * @return 会话列表
+     */
+    @GetMapping("/sessions")
+    public Result<List<SessionVO>> sessions() {
+        return authService.listSessions();
+    }
+
+    /**
+     *  注销当前用户的某个会话(例如其他设备)
+     * @param sessionId 会话id
+     * @return 注销结果
+     */
+    @DeleteMapping("/sessions/{sessionId}")
+    public Result<Void> revokeSession(@PathVariable String sessionId) {
+        Result<Void> result = authService.revokeSession(sessionId);
+        auditLog.record(AuditLog.Event.REVOKE_SESSION, null, result, "sessionId=" + sessionId);
+        return result;
+    }
+
+    private void clearTokenCookie(HttpServletResponse response) {
         ResponseCookie cookie = ResponseCookie.from(jwtProperties.getUserTokenName(), "")
                 .httpOnly(true)
                 .secure(true)
@@ -96,8 +169,5 @@ public class AuthController {
                 .sameSite("Strict")
                 .build();
         response.setHeader("Set-Cookie", cookie.toString());
-
-
-        return authService.logout();
     }
 }
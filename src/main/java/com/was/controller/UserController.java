@@ -1,14 +1,32 @@
 package com.was.controller;
 
 
+import com.was.cache.UserPageCache;
+import com.was.exception.BadRequestException;
+import com.was.exception.ServiceBusyException;
+import com.was.pojo.ExportFormat;
+import com.was.pojo.ExportProperties;
 import com.was.pojo.Result;
-import com.was.pojo.vo.UserFormVO;
+import com.was.pojo.UserImportProperties;
+import com.was.pojo.dto.UserPageQueryDTO;
+import com.was.service.UserImportService;
 import com.was.service.UserService;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
 
 @RestController
 @RequestMapping("/user")
@@ -17,19 +35,183 @@ public class UserController {
 
     @Autowired
     private UserService userService;
+    @Autowired
+    private ExportProperties exportProperties;
+    @Autowired
+    private UserImportService userImportService;
+    @Autowired
+    private UserImportProperties userImportProperties;
+    @Autowired
+    private UserPageCache userPageCache;
+
+    // 限制同时进行的导出任务数
+    private Semaphore exportPermits;
+    // 限制同时进行的导入任务数
+    private Semaphore importPermits;
+
+    @PostConstruct
+    public void init() {
+        exportPermits = new Semaphore(exportProperties.getMaxConcurrent());
+        importPermits = new Semaphore(userImportProperties.getMaxConcurrent());
+    }
 
 
     @RequestMapping("/home")
     public Result<String> home() {
-        System.out.println("home");
         return Result.success("hello");
     }
 
+    /**
+     * 分页获取用户表单
+     * ETag由共享的用户表版本号和查询条件计算, 请求带有匹配的If-None-Match时在读取缓存之前直接返回304, 不查询数据库;
+     * 否则返回缓存的序列化结果, 客户端接受gzip且响应体足够大时直接返回缓存的压缩结果
+     * @param query 分页游标、每页条数及过滤条件
+     * @param ifNoneMatch 客户端缓存的ETag
+     * @param acceptEncoding 客户端接受的内容编码
+     * @return 当前页用户及下一页游标
+     */
     @GetMapping("/form")
-    public Result<List<UserFormVO>> getUserFrom() {
-        log.info("获取用户表单");
-        List<UserFormVO> userForm = userService.getUserFrom();
-        return Result.success(userForm);
+    public ResponseEntity<?> getUserFrom(UserPageQueryDTO query,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.debug("获取用户表单: {}", query);
+        boolean acceptsGzip = acceptsGzip(acceptEncoding);
+        String etag = userPageCache.etag(query);
+        if (etag != null && ifNoneMatch != null) {
+            // 响应是否压缩取决于响应体大小, 这里还不知道, 接受gzip时两种ETag都认
+            String matched = acceptsGzip && matches(ifNoneMatch, UserPageCache.gzipEtag(etag))
+                    ? UserPageCache.gzipEtag(etag)
+                    : matches(ifNoneMatch, etag) ? etag : null;
+            if (matched != null) {
+                userPageCache.recordNotModified();
+                return withCacheHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED)).eTag(matched).build();
+            }
+        }
+        UserPageCache.Page page;
+        try {
+            page = userPageCache.get(query);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.ok(Result.error(e.getMessage()));
+        }
+        boolean gzip = page.gzipBody() != null && acceptsGzip;
+        ResponseEntity.BodyBuilder response = withCacheHeaders(ResponseEntity.ok());
+        response.eTag(gzip ? page.gzipEtag() : page.etag());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.contentType(MediaType.APPLICATION_JSON)
+                .body(gzip ? page.gzipBody() : page.body());
+    }
+
+    /**
+     * 304同样需要带上缓存相关的响应头
+     */
+    private static ResponseEntity.BodyBuilder withCacheHeaders(ResponseEntity.BodyBuilder response) {
+        return response.cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    /**
+     * If-None-Match中是否有与etag弱比较相等的值(或*)
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        ETag current = ETag.create(etag);
+        for (ETag candidate : ETag.parse(ifNoneMatch)) {
+            if (candidate.isWildcard() || candidate.compare(current, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Accept-Encoding中是否包含gzip(或*)且q不为0
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (!name.equals("gzip") && !name.equals("x-gzip") && !name.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=") && parameter.substring(2).trim().matches("0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 流式导出用户
+     * @param query 过滤条件, 分页参数会被忽略
+     * @param format 导出格式 ndjson或csv
+     * @param gzip 是否gzip压缩
+     * @return 导出文件
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(UserPageQueryDTO query,
+                                                        @RequestParam(defaultValue = "ndjson") String format,
+                                                        @RequestParam(defaultValue = "false") boolean gzip) {
+        log.info("导出用户: {}, 格式{}, gzip{}", query, format, gzip);
+        ExportFormat exportFormat = ExportFormat.of(format);
+        if (exportFormat == null) {
+            throw new BadRequestException("不支持的导出格式: " + format);
+        }
+        if (!exportPermits.tryAcquire()) {
+            throw new ServiceBusyException("导出任务过多，请稍后重试", exportProperties.getRetryAfter());
+        }
+        StreamingResponseBody body = out -> {
+            try {
+                userService.exportUsers(query, exportFormat, gzip, out);
+            } finally {
+                exportPermits.release();
+            }
+        };
+        String fileName = "users." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, gzip ? "application/gzip" : exportFormat.getContentType() + ";charset=UTF-8")
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    /**
+     * 批量导入用户
+     * 请求体为NDJSON(每行一个与注册接口相同的JSON对象)或带userName,password,email表头的CSV,
+     * 响应为NDJSON, 每行对应一条输入记录的处理结果, 每处理完一批就写出一批,
+     * 请求体不能以表单类型提交, 否则会被容器当作表单参数读掉
+     * @param format 导入格式 ndjson或csv
+     * @param request 请求, 请求体为导入文件
+     * @return 每行的导入结果
+     */
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "application/json", "text/csv",
+            MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<StreamingResponseBody> importUsers(@RequestParam(defaultValue = "ndjson") String format,
+                                                             HttpServletRequest request) {
+        log.info("批量导入用户: 格式{}", format);
+        ExportFormat importFormat = ExportFormat.of(format);
+        if (importFormat == null) {
+            throw new BadRequestException("不支持的导入格式: " + format);
+        }
+        if (!importPermits.tryAcquire()) {
+            throw new ServiceBusyException("导入任务过多，请稍后重试", userImportProperties.getRetryAfter());
+        }
+        StreamingResponseBody body = out -> {
+            try {
+                userImportService.importUsers(importFormat, request.getInputStream(), out);
+            } finally {
+                importPermits.release();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ExportFormat.NDJSON.getContentType() + ";charset=UTF-8"))
+                .body(body);
     }
 
 }
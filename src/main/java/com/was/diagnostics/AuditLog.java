@@ -0,0 +1,87 @@
+package com.was.diagnostics;
+
+import com.was.pojo.Result;
+import com.was.pojo.entity.LoginUser;
+import com.was.utils.LogLine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * 审计日志
+ * 注册、登录、登出和权限变更各记录一行JSON到was.audit日志, 不采样;
+ * 只记录调用方明确给出的字段, 不记录请求对象, 密码和令牌不会出现在日志中.
+ * 输出由logback-spring.xml中的异步appender完成, 队列满时阻塞而不是丢弃
+ */
+@Component
+public class AuditLog {
+
+    private static final Logger AUDIT = LoggerFactory.getLogger("was.audit");
+
+    /**
+     * 审计事件
+     */
+    public enum Event {
+        REGISTER, LOGIN, LOGOUT, LOGOUT_ALL, REVOKE_SESSION,
+        UPDATE_ROLE_PERMISSIONS, UPDATE_USER_ROLES, REVOKE_USER_SESSIONS
+    }
+
+    /**
+     * 按接口返回的结果记录, 失败时附带错误信息
+     *
+     * @param event    事件
+     * @param userName 操作涉及的用户名, 可以为null
+     * @param result   接口返回的结果, 抛出异常时为null
+     */
+    public void record(Event event, String userName, Result<?> result) {
+        record(event, userName, result, null);
+    }
+
+    /**
+     * 按接口返回的结果记录, 失败时在附加说明之后带上错误信息
+     *
+     * @param event    事件
+     * @param userName 操作涉及的用户名, 可以为null
+     * @param result   接口返回的结果, 抛出异常时为null
+     * @param detail   附加说明(操作对象), 可以为null
+     */
+    public void record(Event event, String userName, Result<?> result, String detail) {
+        boolean success = result != null && Integer.valueOf(1).equals(result.getCode());
+        String message = result == null ? null : result.getMsg();
+        if (message != null) {
+            detail = detail == null ? message : detail + ", " + message;
+        }
+        record(event, userName, success, detail);
+    }
+
+    /**
+     * @param event    事件
+     * @param userName 操作涉及的用户名, 登录和注册时由请求给出, 其他事件为null
+     * @param success  是否成功
+     * @param detail   附加说明(失败原因、操作对象), 可以为null
+     */
+    public void record(Event event, String userName, boolean success, String detail) {
+        if (!AUDIT.isInfoEnabled()) {
+            return;
+        }
+        LogLine line = new LogLine(160)
+                .add("event", event.name())
+                .add("success", success)
+                .add("userName", userName);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof LoginUser loginUser
+                && loginUser.getUser().getId() != null) {
+            line.add("userId", loginUser.getUser().getId());
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            line.add("ip", servletAttributes.getRequest().getRemoteAddr());
+        }
+        AUDIT.info(line.add("detail", detail).toString());
+    }
+}
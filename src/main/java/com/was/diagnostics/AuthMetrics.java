@@ -0,0 +1,141 @@
+package com.was.diagnostics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 认证链路各阶段的耗时和结果指标
+ * 所有计时器和计数器在启动时创建, 记录时不再按标签查找, 每次记录只有一次System.nanoTime和一次写入
+ * 直方图在application.yml的management.metrics.distribution中按前缀配置, p50/p99/p999由Prometheus根据直方图计算
+ */
+@Component
+public class AuthMetrics {
+
+    /**
+     * 令牌校验结果
+     */
+    public enum TokenOutcome {
+        // 令牌有效且会话存在(无状态模式下为未被吊销)
+        VALID,
+        // 令牌已过期
+        EXPIRED,
+        // 签名错误
+        BAD_SIGNATURE,
+        // 令牌格式错误
+        MALFORMED,
+        // 请求中没有令牌
+        ABSENT,
+        // 令牌有效但会话不存在(已登出或已过期)
+        NO_SESSION,
+        // 无状态模式下令牌已被吊销
+        REVOKED,
+        // 会话存储不可用, 按降级策略放行
+        DEGRADED,
+        // 会话存储不可用, 按降级策略拒绝
+        UNAVAILABLE
+    }
+
+    /**
+     * 令牌校验方式
+     */
+    public enum JwtPath {
+        // HS256快速校验
+        FAST,
+        // jjwt完整解析
+        JJWT
+    }
+
+    /**
+     * 认证相关的业务操作
+     */
+    public enum Operation {
+        LOGIN, REGISTER, LOGOUT
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer filterTimer;
+    private Timer jwtCreateTimer;
+    private Timer sessionLoadTimer;
+    private final Map<JwtPath, Timer> jwtVerifyTimers = new EnumMap<>(JwtPath.class);
+    private final Map<TokenOutcome, Counter> tokenCounters = new EnumMap<>(TokenOutcome.class);
+    private final Map<Operation, Timer> successTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Timer> failureTimers = new EnumMap<>(Operation.class);
+
+    @PostConstruct
+    public void init() {
+        filterTimer = Timer.builder("was.auth.filter")
+                .description("认证过滤器处理一次请求的耗时")
+                .register(meterRegistry);
+        jwtCreateTimer = Timer.builder("was.auth.jwt")
+                .description("令牌签发和校验的耗时")
+                .tag("operation", "create")
+                .register(meterRegistry);
+        for (JwtPath path : JwtPath.values()) {
+            jwtVerifyTimers.put(path, Timer.builder("was.auth.jwt")
+                    .description("令牌签发和校验的耗时")
+                    .tag("operation", "verify-" + lowerCase(path))
+                    .register(meterRegistry));
+        }
+        // 本地缓存命中只需几十纳秒, 计时的开销比查询本身还大, 只统计未命中时的redis读取
+        sessionLoadTimer = Timer.builder("was.auth.session.load")
+                .description("本地缓存未命中时从redis读取并反序列化登录用户的耗时")
+                .register(meterRegistry);
+        for (TokenOutcome outcome : TokenOutcome.values()) {
+            tokenCounters.put(outcome, Counter.builder("was.auth.token")
+                    .description("认证过滤器中令牌校验的结果")
+                    .tag("outcome", lowerCase(outcome))
+                    .register(meterRegistry));
+        }
+        for (Operation operation : Operation.values()) {
+            successTimers.put(operation, operationTimer(operation, "success"));
+            failureTimers.put(operation, operationTimer(operation, "failure"));
+        }
+    }
+
+    public void recordFilter(long startNanos) {
+        filterTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordJwtVerify(JwtPath path, long startNanos) {
+        jwtVerifyTimers.get(path).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordJwtCreate(long startNanos) {
+        jwtCreateTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSessionLoad(long startNanos) {
+        sessionLoadTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void token(TokenOutcome outcome) {
+        tokenCounters.get(outcome).increment();
+    }
+
+    public void recordOperation(Operation operation, boolean success, long startNanos) {
+        (success ? successTimers : failureTimers).get(operation)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer operationTimer(Operation operation, String outcome) {
+        return Timer.builder("was.auth.operation")
+                .description("登录、注册、登出的耗时")
+                .tag("operation", lowerCase(operation))
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String lowerCase(Enum<?> value) {
+        return value.name().toLowerCase().replace('_', '-');
+    }
+}
@@ -0,0 +1,85 @@
+package com.was.diagnostics;
+
+import com.was.pojo.LogProperties;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 限速的错误日志
+ * 同一个key在每个汇总间隔内只打印第一次, 其余只计数, 由定时任务按间隔打印一条汇总;
+ * 异常堆栈只在对应logger开启DEBUG时打印, 否则只打印异常类型和信息.
+ * 客户端可以制造大量同类错误(过期或伪造的令牌、触发限流), 逐条打印堆栈会让日志本身成为请求耗时的主要部分
+ */
+@Component
+public class LogThrottle {
+
+    @Autowired
+    private LogProperties properties;
+
+    // key由调用方给出, 只能是常量或异常类名等有限取值
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    private static final class Window {
+        private final Logger logger;
+        private final String message;
+        private final LongAdder suppressed = new LongAdder();
+        // 下次允许直接打印的时间(System.nanoTime)
+        private final AtomicLong nextLogAt;
+
+        private Window(Logger logger, String message, long now) {
+            this.logger = logger;
+            this.message = message;
+            this.nextLogAt = new AtomicLong(now);
+        }
+    }
+
+    /**
+     * 打印一条WARN日志, 同一个key在汇总间隔内只打印第一次
+     *
+     * @param logger  日志记录器
+     * @param key     错误类别
+     * @param message 日志内容, 同一个key以第一次的内容为准
+     * @param e       异常, 可以为null
+     */
+    public void warn(Logger logger, String key, String message, Throwable e) {
+        if (!logger.isWarnEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        Window window = windows.computeIfAbsent(key, k -> new Window(logger, message, now));
+        long next = window.nextLogAt.get();
+        if (now - next < 0 || !window.nextLogAt.compareAndSet(next, now + properties.getErrorSummaryInterval().toNanos())) {
+            window.suppressed.increment();
+            return;
+        }
+        if (e == null) {
+            logger.warn("{} [{}]", message, key);
+        } else if (logger.isDebugEnabled()) {
+            logger.warn("{} [{}]", message, key, e);
+        } else {
+            logger.warn("{} [{}]: {}", message, key, e.toString());
+        }
+    }
+
+    /**
+     * 打印上一个间隔内被省略的次数
+     */
+    @Scheduled(fixedDelayString = "#{@logProperties.errorSummaryInterval.toMillis()}")
+    public void summarize() {
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            Window window = entry.getValue();
+            long suppressed = window.suppressed.sumThenReset();
+            if (suppressed > 0) {
+                window.logger.warn("{} [{}]: 过去{}内另有{}次, 已省略", window.message, entry.getKey(),
+                        properties.getErrorSummaryInterval(), suppressed);
+            }
+        }
+    }
+}
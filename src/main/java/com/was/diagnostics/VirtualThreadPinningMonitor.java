@@ -0,0 +1,96 @@
+package com.was.diagnostics;
+
+import com.was.pojo.VirtualThreadProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 虚拟线程固定监控
+ * 开启虚拟线程时通过JFR事件流订阅jdk.VirtualThreadPinned事件,
+ * 虚拟线程在synchronized块或本地方法中阻塞时无法让出载体线程, 超过阈值的固定会计入指标,
+ * 每个不同的调用栈打印一次日志, 用于定位驱动或业务代码中需要改成ReentrantLock的地方
+ */
+@Component
+@Slf4j
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    @Autowired
+    private VirtualThreadProperties properties;
+    @Autowired
+    private Environment environment;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Set<String> loggedStacks = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!Threading.VIRTUAL.isActive(environment) || !properties.isPinnedDiagnostics()) {
+            return;
+        }
+        Counter pinned = Counter.builder("was.virtual.pinned")
+                .description("虚拟线程被固定在载体线程上超过阈值的次数")
+                .register(meterRegistry);
+        Timer pinnedTime = Timer.builder("was.virtual.pinned.duration")
+                .description("虚拟线程被固定在载体线程上的时间")
+                .register(meterRegistry);
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(properties.getPinnedThreshold()).withStackTrace();
+            stream.onEvent(PINNED_EVENT, event -> {
+                pinned.increment();
+                pinnedTime.record(event.getDuration());
+                report(event);
+            });
+            stream.startAsync();
+            log.info("虚拟线程固定监控已开启, 阈值{}ms", properties.getPinnedThreshold().toMillis());
+        } catch (Exception e) {
+            log.warn("虚拟线程固定监控启动失败: {}", e.getMessage());
+        }
+    }
+
+    private void report(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null) {
+            return;
+        }
+        // 栈顶是JDK内部的park/sleep等方法, 用完整调用栈区分不同的固定位置
+        StringBuilder stack = new StringBuilder();
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            stack.append("\n\tat ").append(frame.getMethod().getType().getName())
+                    .append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        String key = stack.toString();
+        if (loggedStacks.size() >= properties.getMaxLoggedStacks() || !loggedStacks.add(key)) {
+            return;
+        }
+        log.warn("虚拟线程被固定在载体线程上{}ms{}", event.getDuration().toMillis(), key);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
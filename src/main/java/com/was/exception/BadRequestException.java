@@ -0,0 +1,12 @@
+package com.was.exception;
+
+/**
+ * 请求参数不合法异常
+ * 对应HTTP 400, message会返回给客户端, 只用于明确的客户端错误
+ */
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,21 @@
+package com.was.exception;
+
+import java.time.Duration;
+
+/**
+ * 服务繁忙异常
+ * 对应HTTP 503, retryAfter会写入Retry-After响应头
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceBusyException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,21 @@
+package com.was.exception;
+
+import java.time.Duration;
+
+/**
+ * 请求过于频繁异常
+ * 对应HTTP 429, retryAfter会写入Retry-After响应头
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TooManyRequestsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
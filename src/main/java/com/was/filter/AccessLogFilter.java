@@ -0,0 +1,116 @@
+package com.was.filter;
+
+import com.was.pojo.LogProperties;
+import com.was.utils.LogLine;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 访问日志过滤器
+ * 请求结束后按路由模板采样, 每个请求一行JSON写入was.access日志, 由logback-spring.xml中的异步appender输出,
+ * 请求线程只负责拼接字段和入队, 队列满时直接丢弃; 没有被采样的请求不拼接字符串.
+ * 错误响应(状态码>=400)和慢请求总是记录, 其余按was.log.access.sample-rates配置的采样率记录, 记录的行带上采样率以便还原总数.
+ * 只记录方法、路径(不含查询参数)、状态码、耗时、用户id和客户端地址, 不记录请求参数、请求体和Cookie
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    // 认证过滤器认证成功后写入的用户id
+    public static final String USER_ID_ATTRIBUTE = AccessLogFilter.class.getName() + ".userId";
+
+    private static final Logger ACCESS = LoggerFactory.getLogger("was.access");
+
+    @Autowired
+    private LogProperties logProperties;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !logProperties.getAccess().isEnabled() || !ACCESS.isInfoEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                // 流式响应在异步分派完成后才有最终的状态码和耗时
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        log(request, response, start, false);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                log(request, response, start, failed);
+            }
+        }
+    }
+
+    private void log(HttpServletRequest request, HttpServletResponse response, long start, boolean failed) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        // 异常继续抛给容器, 由容器返回500
+        int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+        // 被安全过滤器拒绝的请求没有经过DispatcherServlet, 没有路由模板
+        String route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern
+                ? pattern : null;
+        double sampleRate = sampleRate(route, status, micros);
+        if (sampleRate <= 0 || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        LogLine line = new LogLine(192)
+                .add("method", request.getMethod())
+                .add("uri", request.getRequestURI())
+                .add("route", route)
+                .add("status", status)
+                .add("micros", micros)
+                .add("userId", request.getAttribute(USER_ID_ATTRIBUTE) instanceof String userId ? userId : null)
+                .add("ip", request.getRemoteAddr());
+        if (sampleRate < 1) {
+            line.add("sampleRate", sampleRate);
+        }
+        ACCESS.info(line.toString());
+    }
+
+    private double sampleRate(String route, int status, long micros) {
+        LogProperties.Access access = logProperties.getAccess();
+        if (status >= 400 || micros >= TimeUnit.NANOSECONDS.toMicros(access.getSlowThreshold().toNanos())) {
+            return 1;
+        }
+        Double rate = route == null ? null : access.getSampleRates().get(route);
+        return rate == null ? access.getDefaultSampleRate() : rate;
+    }
+}
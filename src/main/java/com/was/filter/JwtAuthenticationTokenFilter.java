@@ -1,10 +1,27 @@
 package com.was.filter;
 
+import com.alibaba.fastjson.JSON;
+import com.was.config.SecurityConfig;
+import com.was.diagnostics.AuthMetrics;
+import com.was.diagnostics.LogThrottle;
+import com.was.exception.ServiceBusyException;
 import com.was.pojo.JwtProperties;
+import com.was.pojo.Result;
+import com.was.pojo.SessionProperties;
 import com.was.pojo.entity.LoginUser;
 import com.was.pojo.entity.User;
-import com.was.utils.JwtUtil;
+import com.was.security.AuthorityRegistry;
+import com.was.security.AuthoritySet;
+import com.was.security.TokenDenylist;
+import com.was.session.LoginUserNearCache;
+import com.was.session.SessionRefresher;
+import com.was.session.SessionStoreBreaker;
+import com.was.utils.FastJwtVerifier;
+import com.was.utils.JwtCodec;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.security.SignatureException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -12,13 +29,21 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
 
 /**
  * JWT令牌认证过滤器
@@ -27,42 +52,78 @@ import java.io.IOException;
 @Slf4j
 public class JwtAuthenticationTokenFilter extends OncePerRequestFilter {
 
+    // 不需要登录的接口, 会话存储不可用时按未登录继续处理, 不返回503
+    private static final RequestMatcher PERMIT_ALL = new OrRequestMatcher(Arrays.stream(SecurityConfig.PERMIT_ALL_PATHS)
+            .map(path -> (RequestMatcher) PathPatternRequestMatcher.withDefaults().matcher(path))
+            .toList());
+
     @Autowired
     private JwtProperties jwtProperties;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private JwtCodec jwtCodec;
+
+    @Autowired
+    private FastJwtVerifier fastJwtVerifier;
+
+    @Autowired
+    private LoginUserNearCache loginUserNearCache;
+
+    @Autowired
+    private SessionRefresher sessionRefresher;
+
+    @Autowired
+    private AuthMetrics authMetrics;
+
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    @Autowired
+    private AuthorityRegistry authorityRegistry;
+
+    @Autowired
+    private SessionProperties sessionProperties;
+
+    @Autowired
+    private SessionStoreBreaker sessionStoreBreaker;
+
+    @Autowired
+    private LogThrottle logThrottle;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
-        // 获取token
-//        String token = request.getHeader(jwtProperties.getUserTokenName());
-        // 从Cookie中获取token
-        String token = getTokenFromCookie(request);
-
-        if (token != null && !token.isEmpty()) {
-            try {
-                // 解析token
-                Claims claims = JwtUtil.parseJWT(jwtProperties.getUserSecretKey(), token);
-                String userId = claims.get("userId").toString();
-
-                // 从redis中获取用户信息
-                LoginUser loginUser = (LoginUser) redisTemplate.opsForValue().get("login:" + userId);
+        long start = System.nanoTime();
+        try {
+            // 获取并校验token
+            FastJwtVerifier.Verification token = resolveToken(request);
 
-                if (loginUser != null) {
-                    // 构建认证对象
-                    UsernamePasswordAuthenticationToken authenticationToken =
-                            new UsernamePasswordAuthenticationToken(loginUser, null, loginUser.getAuthorities());
-                    SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+            if (token != null) {
+                if (token.jti() != null && jwtProperties.getStateless().isEnabled()) {
+                    // 无状态模式签发的令牌, 只依据令牌本身认证
+                    authenticateStateless(token);
+                } else {
+                    authenticateWithSession(token);
+                }
+                if (SecurityContextHolder.getContext().getAuthentication() != null) {
+                    request.setAttribute(AccessLogFilter.USER_ID_ATTRIBUTE, token.userId());
                 }
-            } catch (Exception e) {
-                // token解析失败处理
-                log.error("token解析失败: ", e);
             }
+        } catch (ServiceBusyException e) {
+            // 会话存储不可用且降级策略不放行, 直接返回503, 不再等待redis; 不需要登录的接口按未登录继续处理
+            if (!PERMIT_ALL.matches(request)) {
+                authMetrics.recordFilter(start);
+                rejectUnavailable(response, e);
+                return;
+            }
+        } catch (Exception e) {
+            // token解析失败处理, 同类失败按间隔汇总, 不逐条打印堆栈
+            logThrottle.warn(log, e.getClass().getName(), "token解析失败", e);
         }
+        // 只统计过滤器自身的耗时, 不包含后续处理
+        authMetrics.recordFilter(start);
 
         filterChain.doFilter(request, response);
         /*// 如果没有token，直接放行
@@ -100,6 +161,161 @@ public class JwtAuthenticationTokenFilter extends OncePerRequestFilter {
 
 
     }
+    /**
+     * 按令牌中的userId和sid从本地缓存或redis中获取会话并认证
+     * 校验结果放在认证对象的details中, 注销和列出会话时据此找到当前会话
+     */
+    private void authenticateWithSession(FastJwtVerifier.Verification token) {
+        LoginUser loginUser;
+        try {
+            // 没有sid的令牌是升级前签发的, 会话已不存在
+            loginUser = token.sessionId() == null ? null : loginUserNearCache.get(token.userId(), token.sessionId());
+        } catch (ServiceBusyException e) {
+            if (!authenticateDegraded(token)) {
+                throw e;
+            }
+            return;
+        }
+
+        if (loginUser != null) {
+            authMetrics.token(AuthMetrics.TokenOutcome.VALID);
+            // 构建认证对象, 角色权限没有变化时直接复用缓存的登录用户上的权限集合
+            UsernamePasswordAuthenticationToken authenticationToken =
+                    new UsernamePasswordAuthenticationToken(loginUser, null, authorityRegistry.resolve(loginUser));
+            authenticationToken.setDetails(token);
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+            // 滑动过期模式下登记续期
+            sessionRefresher.touch(token.userId(), token.sessionId());
+        } else {
+            authMetrics.token(AuthMetrics.TokenOutcome.NO_SESSION);
+        }
+    }
+
+    /**
+     * 依据令牌中的用户id、用户名和角色认证, 只查询本地吊销名单, 不产生网络调用
+     * 校验结果放在认证对象的details中, 注销时据此吊销令牌
+     *
+     * @throws ServiceBusyException 吊销名单尚未加载
+     */
+    private void authenticateStateless(FastJwtVerifier.Verification token) {
+        boolean revoked;
+        try {
+            revoked = tokenDenylist.isRevoked(token.jti(), token.expiresAt());
+        } catch (ServiceBusyException e) {
+            authMetrics.token(AuthMetrics.TokenOutcome.UNAVAILABLE);
+            throw e;
+        }
+        if (revoked) {
+            authMetrics.token(AuthMetrics.TokenOutcome.REVOKED);
+            return;
+        }
+        authMetrics.token(AuthMetrics.TokenOutcome.VALID);
+        authenticateWithClaims(token);
+    }
+
+    /**
+     * 会话存储不可用时按降级策略处理
+     * GRACE策略在开始熔断后的graceWindow内放行签名有效、未过期的令牌, 会话令牌不带角色, 只拥有默认角色
+     *
+     * @return 是否已放行
+     */
+    private boolean authenticateDegraded(FastJwtVerifier.Verification token) {
+        SessionProperties.Breaker breaker = sessionProperties.getBreaker();
+        if (breaker.getPolicy() != SessionProperties.DegradedPolicy.GRACE
+                || sessionStoreBreaker.outageDuration().compareTo(breaker.getGraceWindow()) > 0) {
+            authMetrics.token(AuthMetrics.TokenOutcome.UNAVAILABLE);
+            return false;
+        }
+        authMetrics.token(AuthMetrics.TokenOutcome.DEGRADED);
+        authenticateWithClaims(token);
+        return true;
+    }
+
+    /**
+     * 只依据令牌中的声明构建登录用户并认证
+     */
+    private void authenticateWithClaims(FastJwtVerifier.Verification token) {
+        User user = User.builder()
+                .id(Long.valueOf(token.userId()))
+                .userName(token.userName())
+                .build();
+        // auth声明是规范化的角色组合, 直接取共享的权限集合
+        AuthoritySet authorities = authorityRegistry.forRoleKey(token.authorities() == null ? "" : token.authorities());
+        LoginUser loginUser = new LoginUser(user);
+        loginUser.setAuthorities(authorities);
+        UsernamePasswordAuthenticationToken authenticationToken =
+                new UsernamePasswordAuthenticationToken(loginUser, null, authorities);
+        authenticationToken.setDetails(token);
+        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+    }
+
+    private void rejectUnavailable(HttpServletResponse response, ServiceBusyException e) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().print(JSON.toJSONString(Result.error(e.getMessage())));
+    }
+
+    /**
+     * 从请求中解析并校验令牌
+     * 开启快速校验时直接在Cookie请求头上校验令牌, 无法识别的令牌回退到jjwt解析
+     *
+     * @return 校验结果, 没有token或token无效时返回null
+     */
+    private FastJwtVerifier.Verification resolveToken(HttpServletRequest request) {
+        if (jwtProperties.isFastVerify()) {
+            long verifyStart = System.nanoTime();
+            FastJwtVerifier.Verification verification =
+                    fastJwtVerifier.verifyCookie(request.getHeader(HttpHeaders.COOKIE), jwtProperties.getUserTokenName());
+            authMetrics.recordJwtVerify(AuthMetrics.JwtPath.FAST, verifyStart);
+            switch (verification.status()) {
+                case VALID:
+                    return verification;
+                case ABSENT:
+                    authMetrics.token(AuthMetrics.TokenOutcome.ABSENT);
+                    return null;
+                case EXPIRED:
+                    authMetrics.token(AuthMetrics.TokenOutcome.EXPIRED);
+                    logThrottle.warn(log, verification.status().name(), "token解析失败", null);
+                    return null;
+                case BAD_SIGNATURE:
+                    authMetrics.token(AuthMetrics.TokenOutcome.BAD_SIGNATURE);
+                    logThrottle.warn(log, verification.status().name(), "token解析失败", null);
+                    return null;
+                default:
+                    // 无法识别的格式，回退到jjwt
+                    break;
+            }
+        }
+        // 从Cookie中获取token
+        String token = getTokenFromCookie(request);
+        if (token == null || token.isEmpty()) {
+            authMetrics.token(AuthMetrics.TokenOutcome.ABSENT);
+            return null;
+        }
+        // 解析token, 按异常类型统计失败原因后继续抛出
+        long verifyStart = System.nanoTime();
+        try {
+            Claims claims = jwtCodec.parseJWT(token);
+            Date expiration = claims.getExpiration();
+            return new FastJwtVerifier.Verification(FastJwtVerifier.Status.VALID, claims.get("userId").toString(),
+                    expiration == null ? Long.MAX_VALUE : expiration.getTime(), claims.get("sid", String.class),
+                    claims.get("userName", String.class), claims.get("auth", String.class), claims.getId());
+        } catch (ExpiredJwtException e) {
+            authMetrics.token(AuthMetrics.TokenOutcome.EXPIRED);
+            throw e;
+        } catch (SignatureException e) {
+            authMetrics.token(AuthMetrics.TokenOutcome.BAD_SIGNATURE);
+            throw e;
+        } catch (JwtException | IllegalArgumentException e) {
+            authMetrics.token(AuthMetrics.TokenOutcome.MALFORMED);
+            throw e;
+        } finally {
+            authMetrics.recordJwtVerify(AuthMetrics.JwtPath.JJWT, verifyStart);
+        }
+    }
+
     /**
      * 从Cookie中获取token
      */
@@ -0,0 +1,68 @@
+package com.was.handler;
+
+import com.was.diagnostics.LogThrottle;
+import com.was.exception.BadRequestException;
+import com.was.exception.ServiceBusyException;
+import com.was.exception.TooManyRequestsException;
+import com.was.pojo.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * 全局异常处理器
+ */
+@RestControllerAdvice
+@Slf4j
+public class GlobalExceptionHandler {
+
+    // 过载和限流时同类异常成批出现, 按间隔汇总打印
+    @Autowired
+    private LogThrottle logThrottle;
+
+    /**
+     * 服务繁忙, 返回503并告知客户端重试间隔
+     *
+     * @param ex 异常
+     * @return 错误结果
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<Result<Void>> handleServiceBusy(ServiceBusyException ex) {
+        logThrottle.warn(log, "ServiceBusy", "服务繁忙", ex);
+        long seconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds))
+                .body(Result.error(ex.getMessage()));
+    }
+
+    /**
+     * 请求过于频繁, 返回429并告知客户端重试间隔
+     *
+     * @param ex 异常
+     * @return 错误结果
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Result<Void>> handleTooManyRequests(TooManyRequestsException ex) {
+        logThrottle.warn(log, "TooManyRequests", "请求过于频繁", ex);
+        long seconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds))
+                .body(Result.error(ex.getMessage()));
+    }
+
+    /**
+     * 请求参数不合法, 返回400
+     *
+     * @param ex 异常
+     * @return 错误结果
+     */
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<Result<Void>> handleBadRequest(BadRequestException ex) {
+        logThrottle.warn(log, "BadRequest", "请求参数不合法", ex);
+        return ResponseEntity.badRequest().body(Result.error(ex.getMessage()));
+    }
+}
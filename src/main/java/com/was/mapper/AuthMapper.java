@@ -3,7 +3,12 @@ package com.was.mapper;
 import com.was.pojo.entity.User;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.List;
 
 @Mapper
 public interface AuthMapper {
@@ -14,4 +19,21 @@ public interface AuthMapper {
 
     @Select("select * from user where userName = #{userName}")
     User getUser(String userName);
+
+    /**
+     * 登录时与用户一起加载, 默认角色不在user_role表中
+     * @param userId 用户id
+     * @return 用户的角色编码
+     */
+    @Select("select r.code from user_role ur join role r on r.id = ur.role_id where ur.user_id = #{userId}")
+    List<String> getUserRoles(Long userId);
+
+    /**
+     * 流式读取全部用户名, 用于构建用户名过滤器
+     * @param handler 逐行处理
+     */
+    @Select("select userName from user")
+    @Options(fetchSize = 1000)
+    @ResultType(String.class)
+    void scanUserNames(ResultHandler<String> handler);
 }
@@ -0,0 +1,44 @@
+package com.was.mapper;
+
+import com.was.pojo.entity.RolePermission;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface RoleMapper {
+
+    /**
+     * 查询全部角色及其权限, 用于生成各角色组合的权限集合
+     * @return 每个角色和权限的组合一行
+     */
+    List<RolePermission> listRolePermissions();
+
+    /**
+     * @param code 角色编码
+     * @return 角色id, 不存在时返回null
+     */
+    Long findRoleId(String code);
+
+    /**
+     * @param codes 角色编码
+     * @return 存在的角色id
+     */
+    List<Long> findRoleIds(@Param("codes") Collection<String> codes);
+
+    /**
+     * @param codes 权限编码
+     * @return 存在的权限id
+     */
+    List<Long> findPermissionIds(@Param("codes") Collection<String> codes);
+
+    void deleteRolePermissions(Long roleId);
+
+    void insertRolePermissions(@Param("roleId") Long roleId, @Param("permissionIds") Collection<Long> permissionIds);
+
+    void deleteUserRoles(Long userId);
+
+    void insertUserRoles(@Param("userId") Long userId, @Param("roleIds") Collection<Long> roleIds);
+}
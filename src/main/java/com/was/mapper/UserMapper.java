@@ -2,14 +2,47 @@ package com.was.mapper;
 
 import com.was.pojo.vo.UserFormVO;
 import org.apache.ibatis.annotations.Mapper;
-import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface UserMapper {
 
-    @Select("select * from user")
-    List<UserFormVO> getUserFrom();
+    /**
+     * 按id游标分页查询用户, 只查询展示需要的列
+     * @param afterId 只返回id大于该值的记录, 为null表示第一页
+     * @param limit 最多返回条数
+     * @param usernamePrefix 用户名前缀(已转义LIKE通配符)
+     * @param createdFrom 创建时间下限(包含)
+     * @param createdTo 创建时间上限(不包含)
+     * @return 用户列表, 按id升序
+     */
+    List<UserFormVO> pageUsers(@Param("afterId") Long afterId,
+                               @Param("limit") int limit,
+                               @Param("usernamePrefix") String usernamePrefix,
+                               @Param("createdFrom") LocalDateTime createdFrom,
+                               @Param("createdTo") LocalDateTime createdTo);
+
+    /**
+     * 按id顺序流式读取用户, 返回的游标只在SqlSession打开期间有效
+     * @param usernamePrefix 用户名前缀(已转义LIKE通配符)
+     * @param createdFrom 创建时间下限(包含)
+     * @param createdTo 创建时间上限(不包含)
+     * @return 用户游标
+     */
+    Cursor<UserFormVO> scanUsers(@Param("usernamePrefix") String usernamePrefix,
+                                 @Param("createdFrom") LocalDateTime createdFrom,
+                                 @Param("createdTo") LocalDateTime createdTo);
+
+    /**
+     * 查询一批用户名中已存在的用户名
+     * @param userNames 用户名, 不能为空
+     * @return 已存在的用户名
+     */
+    List<String> findExistingUserNames(@Param("userNames") Collection<String> userNames);
 
 }
@@ -0,0 +1,41 @@
+package com.was.pojo;
+
+/**
+ * 导入导出文件格式
+ */
+public enum ExportFormat {
+
+    // 每行一个JSON对象
+    NDJSON("application/x-ndjson", "ndjson"),
+    // 带表头的CSV
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param value 格式名称, 不区分大小写
+     * @return 对应的格式, 不支持时返回null
+     */
+    public static ExportFormat of(String value) {
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.was.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "was.export")
+public class ExportProperties {
+
+    // 同时进行的导出任务数, 每个导出任务在整个导出期间占用一个数据库连接
+    private int maxConcurrent = 2;
+    // 单次导出的最长时间
+    private Duration timeout = Duration.ofMinutes(30);
+    // 导出任务已满时建议客户端重试的间隔
+    private Duration retryAfter = Duration.ofSeconds(10);
+}
@@ -1,14 +1,37 @@
 package com.was.pojo;
 
 import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @Component
 @Data
+@ConfigurationProperties(prefix = "was.jwt")
 public class JwtProperties {
 
     // 用户密钥
     private String userSecretKey = "this_is_user_secret_key_at_least_32_bytes";
     private long userTtl = 3600000; // 管理员token有效期1小时
     private String userTokenName = "token";
+    // 过滤器是否优先使用HS256快速校验, 无法识别的令牌仍回退到jjwt
+    private boolean fastVerify = false;
+    // 无状态校验模式配置
+    private Stateless stateless = new Stateless();
+
+    @Data
+    public static class Stateless {
+        // 是否开启无状态校验, 开启后令牌携带用户名、权限和jti, 过滤器只校验令牌不再读取会话,
+        // 注销时把jti加入吊销名单; 此模式下令牌到期即失效, 不支持滑动过期
+        private boolean enabled = false;
+        // 吊销名单在redis中的有序集合, 分值为令牌过期时间, 订阅确认后和定期同步时从这里加载
+        private String denylistKey = "jwt:denylist";
+        // 吊销通知使用的redis频道
+        private String channel = "jwt:revoke";
+        // 本地吊销名单按令牌过期时间分桶的粒度, 整桶过期后一起删除
+        private Duration bucket = Duration.ofMinutes(1);
+        // 从redis全量同步的间隔, 修正丢失的吊销通知
+        private Duration syncInterval = Duration.ofMinutes(5);
+    }
 }
@@ -0,0 +1,34 @@
+package com.was.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "was.log")
+public class LogProperties {
+
+    // 异步appender的队列长度, 由logback-spring.xml读取, 修改后需要重启
+    private int asyncQueueSize = 8192;
+    // 同一类错误日志的汇总间隔, 间隔内只打印第一次, 其余只计数, 间隔结束时打印一条汇总
+    private Duration errorSummaryInterval = Duration.ofMinutes(1);
+    // 访问日志
+    private Access access = new Access();
+
+    @Data
+    public static class Access {
+        // 是否记录访问日志(logger: was.access), 也可以把该logger的级别设为OFF
+        private boolean enabled = true;
+        // 默认采样率, 0~1
+        private double defaultSampleRate = 1.0;
+        // 按路由模板(如/user/form)设置的采样率, 覆盖默认值
+        private Map<String, Double> sampleRates = new HashMap<>();
+        // 耗时不小于该值的请求总是记录, 错误响应(状态码>=400)也总是记录
+        private Duration slowThreshold = Duration.ofMillis(500);
+    }
+}
@@ -0,0 +1,55 @@
+package com.was.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "was.login-throttle")
+public class LoginThrottleProperties {
+
+    // 是否开启登录限流
+    private boolean enabled = true;
+    // 按用户名限流的令牌桶
+    private Bucket perUser = new Bucket(5, Duration.ofMinutes(1), 5);
+    // 按客户端IP限流的令牌桶
+    private Bucket perIp = new Bucket(20, Duration.ofMinutes(1), 60);
+    // 连续失败后的锁定配置
+    private Lockout lockout = new Lockout();
+    // 本地拦截名单的最大条数
+    private long localMaximumSize = 100_000;
+
+    @Data
+    public static class Bucket {
+        // 桶容量, 即允许的突发请求数
+        private int capacity;
+        // 补充周期
+        private Duration refillPeriod;
+        // 每个补充周期补充的令牌数
+        private int refillTokens;
+
+        public Bucket() {
+        }
+
+        public Bucket(int capacity, Duration refillPeriod, int refillTokens) {
+            this.capacity = capacity;
+            this.refillPeriod = refillPeriod;
+            this.refillTokens = refillTokens;
+        }
+    }
+
+    @Data
+    public static class Lockout {
+        // 同一用户名连续失败多少次后开始锁定
+        private int threshold = 5;
+        // 第一次锁定的时长, 之后每多失败一次翻倍
+        private Duration baseDuration = Duration.ofSeconds(30);
+        // 最长锁定时长
+        private Duration maxDuration = Duration.ofMinutes(15);
+        // 失败次数的统计窗口, 窗口内没有新的失败时清零
+        private Duration failureWindow = Duration.ofMinutes(30);
+    }
+}
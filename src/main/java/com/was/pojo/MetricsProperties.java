@@ -0,0 +1,17 @@
+package com.was.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "was.metrics")
+public class MetricsProperties {
+
+    // 允许访问指标端点(/actuator/prometheus、/actuator/metrics)的客户端网段(CIDR), 按连接的对端地址判断, 不读取X-Forwarded-For
+    private List<String> allowedNetworks = new ArrayList<>(List.of("127.0.0.1/32", "::1/128"));
+}
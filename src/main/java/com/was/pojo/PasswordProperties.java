@@ -0,0 +1,22 @@
+package com.was.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "was.password")
+public class PasswordProperties {
+
+    // BCrypt强度
+    private int strength = 10;
+    // 密码哈希专用线程数, 默认与CPU核数一致
+    private int threads = Runtime.getRuntime().availableProcessors();
+    // 等待队列容量, 队列满时直接拒绝
+    private int queueCapacity = 64;
+    // 拒绝时建议客户端重试的间隔
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
@@ -0,0 +1,23 @@
+package com.was.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "was.rbac")
+public class RbacProperties {
+
+    // 是否按角色和权限鉴权, 开启前需要先执行db/rbac.sql建表; 关闭后不再查询角色表, 查询和导出只要求登录, 批量导入和管理接口一律拒绝
+    private boolean enabled = false;
+    // 所有用户都拥有的角色, 不需要写入user_role表
+    private List<String> defaultRoles = List.of("USER");
+    // 角色权限变更通知使用的redis频道
+    private String channel = "rbac:invalidate";
+    // 定期从数据库重新加载角色权限的间隔, 作为丢失变更通知时的兜底
+    private Duration reloadInterval = Duration.ofMinutes(5);
+}
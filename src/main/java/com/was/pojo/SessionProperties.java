@@ -0,0 +1,106 @@
+package com.was.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "was.session")
+public class SessionProperties {
+
+    // 会话存储, 默认redis; 单节点部署可以使用进程内的堆外存储
+    private StoreType store = StoreType.REDIS;
+    // 会话在redis中的过期时间, 不配置时与token有效期(JwtProperties.userTtl)一致
+    private Duration ttl;
+    // 每个用户最多同时保持的会话(设备)数, 超过时淘汰最早过期的会话
+    private int maxPerUser = 10;
+    // 滑动过期配置
+    private Sliding sliding = new Sliding();
+    // 登录用户本地缓存配置
+    private NearCache nearCache = new NearCache();
+    // 会话查询合并配置
+    private Batch batch = new Batch();
+    // 会话存储熔断配置
+    private Breaker breaker = new Breaker();
+    // 进程内会话存储配置
+    private Local local = new Local();
+
+    @Data
+    public static class Sliding {
+        // 是否开启滑动过期, 开启后活跃用户的会话会被续期, 此时ttl相当于空闲超时时间
+        private boolean enabled = false;
+        // 同一个会话两次续期之间的最小间隔
+        private Duration refreshInterval = Duration.ofMinutes(1);
+        // 批量提交续期命令的间隔
+        private Duration flushInterval = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class NearCache {
+        // 是否开启本地缓存, 关闭后每次请求都直接读取redis
+        private boolean enabled = true;
+        // 最大缓存条数
+        private long maximumSize = 10000;
+        // 写入后的存活时间, 作为丢失失效通知时的兜底
+        private Duration ttl = Duration.ofSeconds(30);
+        // 失效通知使用的redis频道
+        private String channel = "login:invalidate";
+    }
+
+    @Data
+    public static class Batch {
+        // 是否合并并发的会话查询, 关闭后每次本地缓存未命中单独查询一次redis
+        private boolean enabled = true;
+        // 一批最多合并的查询数
+        private int maxSize = 64;
+        // 一批中第一个查询最多等待其他查询的时间, 即合并带来的额外延迟上限; 为0时只合并上一批执行期间到达的查询
+        private Duration maxWait = Duration.ofNanos(200_000);
+        // 同时执行的批次数, 即合并查询占用的redis连接数
+        private int flushers = 2;
+        // 查询方等待结果的最长时间, 超时按查询失败处理
+        private Duration timeout = Duration.ofMillis(250);
+    }
+
+    @Data
+    public static class Breaker {
+        // 是否开启熔断, 关闭后redis故障时每个请求都会等到超时
+        private boolean enabled = true;
+        // 连续失败(连接失败或超时)多少次后熔断
+        private int failureThreshold = 5;
+        // 熔断后多久放行一个试探请求, 试探成功后恢复, 失败则继续熔断
+        private Duration openDuration = Duration.ofSeconds(5);
+        // 熔断期间对令牌的处理方式
+        private DegradedPolicy policy = DegradedPolicy.REJECT;
+        // GRACE策略下从开始熔断算起最多放行多久, 超过后按REJECT处理
+        private Duration graceWindow = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Local {
+        // 最多保存的会话数, 存储空间在启动时按 容量 x 槽大小 一次分配, 合计不能超过2GB
+        private int capacity = 100_000;
+        // 每个会话占用的字节数, 需要容纳会话数据和设备信息, 放不下时丢弃设备的User-Agent
+        private int slotSize = 512;
+        // 持久化文件, 配置后存储空间映射到该文件, 重启后直接恢复会话; 不配置时只保存在内存中
+        private String file;
+        // 清理过期会话的间隔, 持久化时同时把修改写回文件
+        private Duration sweepInterval = Duration.ofMinutes(1);
+    }
+
+    public enum StoreType {
+        // redis, 多节点共享会话
+        REDIS,
+        // 进程内堆外存储, 只适用于单节点部署
+        LOCAL
+    }
+
+    public enum DegradedPolicy {
+        // 返回503, 要求客户端稍后重试
+        REJECT,
+        // 签名有效且未过期的令牌按默认角色放行, 此时无法得知会话是否已注销
+        GRACE
+    }
+}
@@ -0,0 +1,22 @@
+package com.was.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "was.user-cache")
+public class UserCacheProperties {
+
+    // 是否开启用户记录本地缓存, 关闭后每次登录都直接查询数据库
+    private boolean enabled = true;
+    // 最大缓存条数
+    private long maximumSize = 10000;
+    // 写入后的存活时间, 作为丢失失效通知时的兜底
+    private Duration ttl = Duration.ofMinutes(5);
+    // 失效通知使用的redis频道
+    private String channel = "user:invalidate";
+}
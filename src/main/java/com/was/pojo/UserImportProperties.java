@@ -0,0 +1,28 @@
+package com.was.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "was.user-import")
+public class UserImportProperties {
+
+    // 同时进行的导入任务数
+    private int maxConcurrent = 1;
+    // 每批处理的行数: 一次查重、一轮并行哈希、一次批量插入
+    private int batchSize = 500;
+    // 导入专用的密码哈希线程数, 与登录使用的线程池隔离, 默认与CPU核数一致
+    private int hashThreads = Runtime.getRuntime().availableProcessors();
+    // 单次导入的最大行数
+    private int maxRows = 200_000;
+    // 单行(CSV为单条记录)的最大字符数, 超出的行不保存内容, 直接判为invalid
+    private int maxLineLength = 4096;
+    // 单次导入的最长时间
+    private Duration timeout = Duration.ofHours(2);
+    // 导入任务已满时建议客户端重试的间隔
+    private Duration retryAfter = Duration.ofSeconds(30);
+}
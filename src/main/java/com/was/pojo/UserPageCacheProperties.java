@@ -0,0 +1,26 @@
+package com.was.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "was.user-page-cache")
+public class UserPageCacheProperties {
+
+    // 是否缓存用户分页接口序列化后的响应, 关闭后每次请求都查询数据库(ETag相同时仍然直接返回304)
+    private boolean enabled = true;
+    // 最多缓存的页数(不同的分页和过滤条件各占一条)
+    private long maximumSize = 1000;
+    // 写入后的存活时间, 也是从redis读取表版本号的间隔, 作为丢失失效通知时的兜底
+    private Duration ttl = Duration.ofMinutes(1);
+    // 响应体不小于该字节数时额外缓存gzip压缩后的版本, 客户端支持时直接返回
+    private int gzipMinSize = 1024;
+    // 用户表变更通知使用的redis频道
+    private String channel = "user:page:invalidate";
+    // 共享的用户表版本号, 写入后INCR
+    private String versionKey = "user:page:version";
+}
@@ -0,0 +1,24 @@
+package com.was.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "was.username-filter")
+public class UsernameFilterProperties {
+
+    // 是否开启用户名过滤器, 关闭后所有查询都直接访问数据库
+    private boolean enabled = true;
+    // 预期用户数, 实际用户数更多时重建会按实际数量的2倍扩容
+    private long expectedInsertions = 1_000_000;
+    // 目标误判率
+    private double falsePositiveRate = 0.01;
+    // 定期全量重建的间隔, 用于修正丢失的广播和扩容
+    private Duration rebuildInterval = Duration.ofHours(6);
+    // 新用户广播使用的redis频道
+    private String channel = "user:inserted";
+}
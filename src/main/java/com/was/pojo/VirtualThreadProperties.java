@@ -0,0 +1,20 @@
+package com.was.pojo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Data
+@ConfigurationProperties(prefix = "was.virtual-threads")
+public class VirtualThreadProperties {
+
+    // 开启虚拟线程(spring.threads.virtual.enabled)时是否通过JFR监控载体线程被固定的情况
+    private boolean pinnedDiagnostics = true;
+    // 固定时间超过该值才记录
+    private Duration pinnedThreshold = Duration.ofMillis(20);
+    // 每个不同的调用栈只打印一次日志, 最多记录的调用栈数量
+    private int maxLoggedStacks = 200;
+}
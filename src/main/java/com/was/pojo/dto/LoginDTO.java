@@ -3,6 +3,7 @@ package com.was.pojo.dto;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
+import lombok.ToString;
 import java.io.Serializable;
 
 @Data
@@ -13,5 +14,7 @@ public class LoginDTO implements Serializable{
     private String userName;
     @NotBlank(message = "密码不能为空")
     @Size(min = 6, max = 20, message = "密码长度必须在6-20之间")
+    // 不出现在toString中, 避免被日志记录
+    @ToString.Exclude
     private String password;
 }
@@ -4,6 +4,7 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
+import lombok.ToString;
 import java.io.Serializable;
 
 @Data
@@ -14,6 +15,8 @@ public class RegisterDTO implements Serializable{
     private String userName;
     @NotBlank(message = "密码不能为空")
     @Size(min = 6, max = 20, message = "密码长度必须在6-20之间")
+    // 不出现在toString中, 避免被日志记录
+    @ToString.Exclude
     private String password;
     @Email(message = "邮箱格式错误")
     @NotBlank(message = "邮箱不能为空")
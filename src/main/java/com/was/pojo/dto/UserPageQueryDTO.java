@@ -0,0 +1,23 @@
+package com.was.pojo.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+public class UserPageQueryDTO implements Serializable {
+
+    // 上一页返回的nextPageToken, 为空表示第一页
+    private String pageToken;
+    // 每页条数
+    private Integer limit;
+    // 用户名前缀
+    private String usernamePrefix;
+    // 创建时间范围 [createdFrom, createdTo)
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdFrom;
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdTo;
+}
@@ -1,22 +1,36 @@
 package com.was.pojo.entity;
 
-import lombok.AllArgsConstructor;
+import com.alibaba.fastjson.annotation.JSONField;
+import com.was.security.AuthoritySet;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import java.util.Collection;
+import java.util.List;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class LoginUser implements UserDetails {
 
     private User user;
+    // 用户在user_role表中的角色编码, 随会话保存; 默认角色不在其中
+    private List<String> roles = List.of();
+    // 按角色展开的权限, 由AuthorityRegistry生成, 不随会话保存
+    @JSONField(serialize = false, deserialize = false)
+    private transient AuthoritySet authorities;
+
+    public LoginUser(User user) {
+        this.user = user;
+    }
+
+    public LoginUser(User user, List<String> roles) {
+        this.user = user;
+        this.roles = roles;
+    }
+
     @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        return null;
+    public AuthoritySet getAuthorities() {
+        return authorities;
     }
 
     @Override
@@ -0,0 +1,16 @@
+package com.was.pojo.entity;
+
+import lombok.Data;
+
+/**
+ * 角色和权限的对应关系, 没有任何权限的角色permissionCode为null
+ */
+@Data
+public class RolePermission {
+
+    private String roleCode;
+
+    private String roleName;
+
+    private String permissionCode;
+}
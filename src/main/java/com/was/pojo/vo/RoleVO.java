@@ -0,0 +1,20 @@
+package com.was.pojo.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoleVO {
+
+    private String code;
+    private String name;
+    // 权限编码
+    private List<String> permissions;
+}
@@ -0,0 +1,28 @@
+package com.was.pojo.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportResultVO {
+
+    // 结果: 创建成功
+    public static final String CREATED = "created";
+    // 结果: 用户名已存在或文件中重复
+    public static final String DUPLICATE = "duplicate";
+    // 结果: 校验不通过
+    public static final String INVALID = "invalid";
+    // 结果: 处理失败
+    public static final String FAILED = "failed";
+    // 结果: 超过最大行数, 导入中止, 之后的数据未读取
+    public static final String ABORTED = "aborted";
+
+    // 数据所在行号(CSV为记录序号, 表头为第1行)
+    private Long line;
+    private String userName;
+    private String status;
+    private String message;
+}
@@ -0,0 +1,17 @@
+package com.was.pojo.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPageVO {
+
+    private List<UserFormVO> items;
+    // 下一页的游标, 为null表示没有更多数据
+    private String nextPageToken;
+}
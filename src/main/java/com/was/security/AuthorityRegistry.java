@@ -0,0 +1,191 @@
+package com.was.security;
+
+import com.was.mapper.RoleMapper;
+import com.was.pojo.RbacProperties;
+import com.was.pojo.entity.LoginUser;
+import com.was.pojo.entity.RolePermission;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 角色权限注册表
+ * 从数据库加载各角色的权限, 按角色组合生成不可变的权限集合并共享, 拥有相同角色的用户使用同一个实例;
+ * 角色权限变更时通过redis频道通知所有节点重新加载, 版本号递增后旧的权限集合在下次使用时重新生成
+ */
+@Component
+@Slf4j
+public class AuthorityRegistry implements MessageListener {
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    @Autowired
+    private RbacProperties properties;
+    @Autowired
+    private RoleMapper roleMapper;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 角色编码 -> 权限编码
+    private volatile Map<String, List<String>> rolePermissions = Map.of();
+    // 角色权限的版本, 每次加载到不同的内容时递增
+    private volatile long generation;
+    // 规范化的角色组合 -> 权限集合
+    private final ConcurrentHashMap<String, AuthoritySet> interned = new ConcurrentHashMap<>();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            log.info("角色鉴权已关闭");
+            return;
+        }
+        listenerContainer.addMessageListener(this, new ChannelTopic(properties.getChannel()));
+        Gauge.builder("was.rbac.authority.sets", interned, Map::size)
+                .description("共享的权限集合数, 即当前在用的不同角色组合数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 应用启动后在后台加载, 加载完成前只有角色本身, 需要权限的接口一律拒绝
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (properties.isEnabled()) {
+            Thread.ofPlatform().daemon().name("rbac-loader").start(this::reload);
+        }
+    }
+
+    @Scheduled(initialDelayString = "#{@rbacProperties.reloadInterval.toMillis()}",
+            fixedDelayString = "#{@rbacProperties.reloadInterval.toMillis()}")
+    public void scheduledReload() {
+        if (properties.isEnabled()) {
+            reload();
+        }
+    }
+
+    /**
+     * 从数据库重新加载全部角色权限, 内容有变化时作废已生成的权限集合
+     */
+    public void reload() {
+        reloadLock.lock();
+        try {
+            Map<String, List<String>> loaded = new TreeMap<>();
+            for (RolePermission row : roleMapper.listRolePermissions()) {
+                List<String> permissions = loaded.computeIfAbsent(row.getRoleCode(), code -> new ArrayList<>());
+                if (row.getPermissionCode() != null) {
+                    permissions.add(row.getPermissionCode());
+                }
+            }
+            if (loaded.equals(rolePermissions)) {
+                return;
+            }
+            rolePermissions = loaded;
+            generation++;
+            interned.clear();
+            log.info("角色权限加载完成: {}个角色, 版本{}", loaded.size(), generation);
+        } catch (Exception e) {
+            log.warn("角色权限加载失败, 继续使用版本{}: {}", generation, e.getMessage());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * 角色权限变更后调用, 本节点立即重新加载并通知其他节点
+     *
+     * @param roleCode 变更的角色
+     */
+    public void publishChange(String roleCode) {
+        reload();
+        stringRedisTemplate.convertAndSend(properties.getChannel(), roleCode);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        log.debug("收到角色权限变更通知: {}", new String(message.getBody(), StandardCharsets.UTF_8));
+        reload();
+    }
+
+    /**
+     * 登录用户当前的权限集合, 保存在LoginUser上, 角色权限没有变化时直接返回
+     *
+     * @param loginUser 登录用户
+     * @return 权限集合
+     */
+    public AuthoritySet resolve(LoginUser loginUser) {
+        AuthoritySet authorities = loginUser.getAuthorities();
+        if (authorities == null || authorities.generation() != generation) {
+            authorities = forRoleKey(roleKey(loginUser.getRoles()));
+            loginUser.setAuthorities(authorities);
+        }
+        return authorities;
+    }
+
+    /**
+     * @param roleKey 规范化的角色组合, 见{@link #roleKey(Collection)}
+     * @return 该角色组合共享的权限集合
+     */
+    public AuthoritySet forRoleKey(String roleKey) {
+        long current = generation;
+        AuthoritySet authorities = interned.get(roleKey);
+        if (authorities != null && authorities.generation() == current) {
+            return authorities;
+        }
+        return interned.compute(roleKey, (key, existing) ->
+                existing != null && existing.generation() == current ? existing : compile(key, current));
+    }
+
+    /**
+     * 角色组合的规范形式: 去重排序后逗号连接, 无状态令牌的auth声明也使用这种形式
+     *
+     * @param roles 角色编码
+     * @return 规范化的角色组合
+     */
+    public static String roleKey(Collection<String> roles) {
+        if (roles == null || roles.isEmpty()) {
+            return "";
+        }
+        return String.join(",", new TreeSet<>(roles));
+    }
+
+    private AuthoritySet compile(String roleKey, long version) {
+        Map<String, List<String>> permissions = rolePermissions;
+        TreeSet<String> roles = new TreeSet<>(properties.getDefaultRoles());
+        if (!roleKey.isEmpty()) {
+            roles.addAll(Arrays.asList(roleKey.split(",")));
+        }
+        List<String> authorities = new ArrayList<>();
+        for (String role : roles) {
+            authorities.add(ROLE_PREFIX + role);
+            authorities.addAll(permissions.getOrDefault(role, List.of()));
+        }
+        return AuthoritySet.of(authorities, version);
+    }
+}
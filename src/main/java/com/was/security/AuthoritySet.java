@@ -0,0 +1,149 @@
+package com.was.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 不可变的权限集合, 用位图保存
+ * 每个权限字符串(角色为ROLE_前缀)在进程内分配一个固定的位序号, 鉴权时按位序号测试一个bit, 不再逐个比较字符串;
+ * 位序号只在本进程内有效, 不会序列化或在节点之间传递
+ */
+public final class AuthoritySet extends AbstractCollection<GrantedAuthority> {
+
+    // 权限 -> 位序号, 只增不减, 数量受角色表和权限表的行数限制
+    private static final Map<String, Integer> INDEX = new ConcurrentHashMap<>();
+    // 位序号 -> 权限对象, 迭代时共享同一个实例
+    private static volatile GrantedAuthority[] authorities = new GrantedAuthority[64];
+
+    public static final AuthoritySet EMPTY = new AuthoritySet(new long[0], -1);
+
+    private final long[] words;
+    private final int size;
+    // 生成时角色权限的版本, 角色权限变更后旧版本的集合不再使用
+    private final long generation;
+
+    private AuthoritySet(long[] words, long generation) {
+        this.words = words;
+        this.generation = generation;
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        this.size = count;
+    }
+
+    /**
+     * @param authorities 权限字符串
+     * @param generation  角色权限的版本
+     * @return 包含这些权限的集合
+     */
+    public static AuthoritySet of(Collection<String> authorities, long generation) {
+        long[] words = new long[0];
+        for (String authority : authorities) {
+            int bit = bit(authority);
+            if (bit >> 6 >= words.length) {
+                words = Arrays.copyOf(words, (bit >> 6) + 1);
+            }
+            words[bit >> 6] |= 1L << bit;
+        }
+        return new AuthoritySet(words, generation);
+    }
+
+    /**
+     * 权限对应的位序号, 第一次出现时分配
+     * 鉴权规则在配置时取得位序号, 之后每次鉴权只做位测试
+     */
+    public static int bit(String authority) {
+        Integer bit = INDEX.get(authority);
+        return bit != null ? bit : register(authority);
+    }
+
+    private static synchronized int register(String authority) {
+        Integer existing = INDEX.get(authority);
+        if (existing != null) {
+            return existing;
+        }
+        int bit = INDEX.size();
+        GrantedAuthority[] current = authorities;
+        if (bit == current.length) {
+            current = Arrays.copyOf(current, bit * 2);
+        }
+        current[bit] = new SimpleGrantedAuthority(authority);
+        // 先发布权限对象再发布位序号, 拿到位序号的线程一定能读到对应的对象
+        authorities = current;
+        INDEX.put(authority, bit);
+        return bit;
+    }
+
+    public boolean has(int bit) {
+        int word = bit >> 6;
+        return word < words.length && (words[word] & (1L << bit)) != 0;
+    }
+
+    public boolean has(String authority) {
+        Integer bit = INDEX.get(authority);
+        return bit != null && has(bit);
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof GrantedAuthority authority && authority.getAuthority() != null && has(authority.getAuthority());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<GrantedAuthority> iterator() {
+        GrantedAuthority[] table = authorities;
+        return new Iterator<>() {
+            private int next = nextBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public GrantedAuthority next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                GrantedAuthority authority = table[next];
+                next = nextBit(next + 1);
+                return authority;
+            }
+        };
+    }
+
+    private int nextBit(int from) {
+        int word = from >> 6;
+        if (word >= words.length) {
+            return -1;
+        }
+        long bits = words[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == words.length) {
+                return -1;
+            }
+            bits = words[word];
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.was.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.was.exception.TooManyRequestsException;
+import com.was.pojo.LoginThrottleProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 登录限流
+ * 在校验密码之前执行: 先查本地拦截名单, 已被拦截的客户端直接拒绝, 不访问redis;
+ * 否则在redis中用lua脚本原子地检查用户名锁定状态, 并同时扣减用户名和客户端IP两个令牌桶,
+ * 被redis拒绝的用户名或IP在需要等待的时间内加入本地拦截名单;
+ * 密码错误时累计失败次数, 达到阈值后按指数增长的时长锁定用户名, 登录成功时清零
+ * redis不可用时放行, BCrypt线程池的隔离舱仍然限制密码计算的并发
+ */
+@Component
+@Slf4j
+public class LoginThrottle {
+
+    private static final String BUCKET_PREFIX = "login:throttle:";
+    private static final String FAILURE_PREFIX = "login:fail:";
+    private static final String LOCK_PREFIX = "login:lock:";
+
+    private static final long ALLOWED = 0;
+    private static final long LOCKED = 1;
+    private static final long USER_LIMITED = 2;
+
+    @Autowired
+    private LoginThrottleProperties properties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private DefaultRedisScript<List> acquireScript;
+    private DefaultRedisScript<Long> failureScript;
+    // 本地拦截名单: 用户名或IP -> 拦截截止时间(毫秒), 条目在截止时间后自动过期
+    private Cache<String, Long> blocked;
+
+    private Counter localRejected;
+    private Counter lockedRejected;
+    private Counter userRejected;
+    private Counter ipRejected;
+
+    @PostConstruct
+    public void init() {
+        acquireScript = new DefaultRedisScript<>();
+        acquireScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/login_acquire.lua")));
+        acquireScript.setResultType(List.class);
+        failureScript = new DefaultRedisScript<>();
+        failureScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lua/login_failure.lua")));
+        failureScript.setResultType(Long.class);
+
+        blocked = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaximumSize())
+                .expireAfter(new Expiry<String, Long>() {
+                    @Override
+                    public long expireAfterCreate(String key, Long until, long currentTime) {
+                        return Duration.ofMillis(Math.max(0, until - System.currentTimeMillis())).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Long until, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, until, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Long until, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        localRejected = rejectedCounter("local");
+        lockedRejected = rejectedCounter("locked");
+        userRejected = rejectedCounter("user");
+        ipRejected = rejectedCounter("ip");
+    }
+
+    /**
+     * 登录前检查, 超过限制时抛出TooManyRequestsException
+     *
+     * @param userName 用户名
+     * @param clientIp 客户端IP
+     */
+    public void acquire(String userName, String clientIp) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String userKey = "user:" + userName;
+        String ipKey = "ip:" + clientIp;
+        long now = System.currentTimeMillis();
+        long until = Math.max(blockedUntil(userKey), blockedUntil(ipKey));
+        if (until > now) {
+            localRejected.increment();
+            throw rejected(until - now);
+        }
+
+        List<?> result;
+        try {
+            LoginThrottleProperties.Bucket perUser = properties.getPerUser();
+            LoginThrottleProperties.Bucket perIp = properties.getPerIp();
+            result = stringRedisTemplate.execute(acquireScript,
+                    List.of(BUCKET_PREFIX + userKey, BUCKET_PREFIX + ipKey, LOCK_PREFIX + userName),
+                    String.valueOf(perUser.getCapacity()), String.valueOf(ratePerMilli(perUser)),
+                    String.valueOf(perIp.getCapacity()), String.valueOf(ratePerMilli(perIp)));
+        } catch (Exception e) {
+            log.warn("登录限流检查失败, 本次放行: {}", e.getMessage());
+            return;
+        }
+        long code = ((Number) result.get(0)).longValue();
+        if (code == ALLOWED) {
+            return;
+        }
+        long waitMillis = Math.max(1, ((Number) result.get(1)).longValue());
+        if (code == LOCKED) {
+            lockedRejected.increment();
+            blocked.put(userKey, now + waitMillis);
+        } else if (code == USER_LIMITED) {
+            userRejected.increment();
+            blocked.put(userKey, now + waitMillis);
+        } else {
+            ipRejected.increment();
+            blocked.put(ipKey, now + waitMillis);
+        }
+        throw rejected(waitMillis);
+    }
+
+    /**
+     * 密码校验失败后调用, 累计失败次数, 达到阈值时锁定用户名
+     *
+     * @param userName 用户名
+     */
+    public void onFailure(String userName) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LoginThrottleProperties.Lockout lockout = properties.getLockout();
+        try {
+            Long lockMillis = stringRedisTemplate.execute(failureScript,
+                    List.of(FAILURE_PREFIX + userName, LOCK_PREFIX + userName),
+                    String.valueOf(lockout.getFailureWindow().toMillis()), String.valueOf(lockout.getThreshold()),
+                    String.valueOf(lockout.getBaseDuration().toMillis()), String.valueOf(lockout.getMaxDuration().toMillis()));
+            if (lockMillis != null && lockMillis > 0) {
+                log.warn("用户{}连续登录失败, 锁定{}秒", userName, lockMillis / 1000);
+                blocked.put("user:" + userName, System.currentTimeMillis() + lockMillis);
+            }
+        } catch (Exception e) {
+            log.warn("记录登录失败次数失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 登录成功后调用, 清除失败次数
+     *
+     * @param userName 用户名
+     */
+    public void onSuccess(String userName) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.delete(FAILURE_PREFIX + userName);
+        } catch (Exception e) {
+            log.warn("清除登录失败次数失败: {}", e.getMessage());
+        }
+    }
+
+    private long blockedUntil(String key) {
+        Long until = blocked.getIfPresent(key);
+        return until == null ? 0 : until;
+    }
+
+    private static double ratePerMilli(LoginThrottleProperties.Bucket bucket) {
+        return (double) bucket.getRefillTokens() / bucket.getRefillPeriod().toMillis();
+    }
+
+    private static TooManyRequestsException rejected(long waitMillis) {
+        return new TooManyRequestsException("登录尝试过于频繁，请稍后重试", Duration.ofMillis(waitMillis));
+    }
+
+    private Counter rejectedCounter(String reason) {
+        return Counter.builder("was.login.throttled")
+                .description("被登录限流拒绝的请求数")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
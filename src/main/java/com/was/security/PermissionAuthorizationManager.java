@@ -0,0 +1,98 @@
+package com.was.security;
+
+import com.was.pojo.entity.LoginUser;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 按权限位鉴权
+ * 权限的位序号在创建时确定, 每次鉴权只读取登录用户的权限集合并测试一个bit
+ */
+public final class PermissionAuthorizationManager<T> implements AuthorizationManager<T> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final int bit;
+
+    private PermissionAuthorizationManager(String permission) {
+        this.bit = AuthoritySet.bit(permission);
+    }
+
+    /**
+     * 用于SecurityConfig中的URL规则
+     *
+     * @param permission 权限编码
+     * @return 要求该权限的鉴权管理器
+     */
+    public static <T> PermissionAuthorizationManager<T> hasPermission(String permission) {
+        return new PermissionAuthorizationManager<>(permission);
+    }
+
+    @Override
+    public AuthorizationResult authorize(Supplier<Authentication> authentication, T object) {
+        return granted(authentication.get(), bit) ? GRANTED : DENIED;
+    }
+
+    /**
+     * @deprecated 使用{@link #authorize(Supplier, Object)}
+     */
+    @Deprecated
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, T object) {
+        return (AuthorizationDecision) authorize(authentication, object);
+    }
+
+    private static boolean granted(Authentication authentication, int bit) {
+        // 权限集合保存在登录用户上, 认证对象中的权限列表是构造时复制的, 不能按位测试
+        return authentication != null && authentication.isAuthenticated()
+                && authentication.getPrincipal() instanceof LoginUser loginUser
+                && loginUser.getAuthorities() != null
+                && loginUser.getAuthorities().has(bit);
+    }
+
+    /**
+     * 按方法上的{@link RequiresPermission}鉴权, 每个方法的位序号只解析一次
+     * 这些方法(角色管理、注销他人会话)只对拥有相应权限的用户开放, 关闭角色鉴权时没有人拥有权限, 一律拒绝
+     */
+    public static final class Methods implements AuthorizationManager<MethodInvocation> {
+
+        private final Supplier<Boolean> enabled;
+        private final Map<Method, Integer> bits = new ConcurrentHashMap<>();
+
+        /**
+         * @param enabled 是否开启角色鉴权, 关闭时拒绝所有调用
+         */
+        public Methods(Supplier<Boolean> enabled) {
+            this.enabled = enabled;
+        }
+
+        @Override
+        public AuthorizationResult authorize(Supplier<Authentication> authentication, MethodInvocation invocation) {
+            if (!enabled.get()) {
+                return DENIED;
+            }
+            int bit = bits.computeIfAbsent(invocation.getMethod(), method ->
+                    AuthoritySet.bit(AnnotationUtils.findAnnotation(method, RequiresPermission.class).value()));
+            return granted(authentication.get(), bit) ? GRANTED : DENIED;
+        }
+
+        /**
+         * @deprecated 使用{@link #authorize(Supplier, MethodInvocation)}
+         */
+        @Deprecated
+        @Override
+        public AuthorizationDecision check(Supplier<Authentication> authentication, MethodInvocation invocation) {
+            return (AuthorizationDecision) authorize(authentication, invocation);
+        }
+    }
+}
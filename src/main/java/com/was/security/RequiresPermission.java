@@ -0,0 +1,21 @@
+package com.was.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 调用方法需要的权限, 由{@link PermissionAuthorizationManager}按位测试
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RequiresPermission {
+
+    /**
+     * @return 权限编码, 如 role:manage
+     */
+    String value();
+}
@@ -0,0 +1,219 @@
+package com.was.security;
+
+import com.was.exception.ServiceBusyException;
+import com.was.pojo.JwtProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 无状态模式下的令牌吊销名单
+ * 注销时把令牌的jti写入redis有序集合(分值为令牌过期时间)并广播给所有节点, 各节点在本地内存中按过期时间分桶保存,
+ * 校验时按令牌自身的过期时间直接定位到所在的桶, 不需要任何网络调用; 令牌过期后整桶删除, 名单大小只与有效期内的注销次数有关.
+ * 订阅确认后才从redis全量加载, 加载成功之前无法判断令牌是否已吊销, 校验时抛出ServiceBusyException而不是放行
+ */
+@Component
+@Slf4j
+public class TokenDenylist implements MessageListener, SubscriptionListener {
+
+    // 订阅后全量加载失败时的重试间隔(毫秒)
+    private static final long SYNC_RETRY_INTERVAL = 5000;
+
+    @Autowired
+    private JwtProperties jwtProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 桶的结束时间(毫秒) -> 在该桶时间段内过期的已吊销jti
+    private final ConcurrentSkipListMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+    private long bucketMillis;
+    // 是否已在订阅之后成功加载过一次
+    private volatile boolean synced;
+
+    @PostConstruct
+    public void init() {
+        JwtProperties.Stateless config = jwtProperties.getStateless();
+        bucketMillis = Math.max(1000, config.getBucket().toMillis());
+        if (!config.isEnabled()) {
+            return;
+        }
+        listenerContainer.addMessageListener(this, new ChannelTopic(config.getChannel()));
+        Gauge.builder("was.jwt.denylist.size", buckets, b -> b.values().stream().mapToInt(Set::size).sum())
+                .description("本地吊销名单中尚未过期的令牌数")
+                .register(meterRegistry);
+        // 监听容器在应用启动后才在后台线程中订阅, 这里不加载; 订阅确认后在onChannelSubscribed中加载
+    }
+
+    /**
+     * 吊销令牌, 写入本地名单和redis, 并通知其他节点
+     *
+     * @param jti       令牌标识
+     * @param expiresAt 令牌过期时间(毫秒)
+     */
+    public void revoke(String jti, long expiresAt) {
+        revokeAll(Map.of(jti, expiresAt));
+    }
+
+    /**
+     * 批量吊销令牌, 一次ZADD写入redis, 合并成一条通知
+     *
+     * @param tokens jti -> 令牌过期时间(毫秒)
+     */
+    public void revokeAll(Map<String, Long> tokens) {
+        long now = System.currentTimeMillis();
+        Set<ZSetOperations.TypedTuple<String>> revoked = new HashSet<>();
+        StringJoiner body = new StringJoiner("\n");
+        tokens.forEach((jti, expiresAt) -> {
+            if (expiresAt > now) {
+                addLocal(jti, expiresAt);
+                revoked.add(ZSetOperations.TypedTuple.of(jti, (double) expiresAt));
+                body.add(jti + ":" + expiresAt);
+            }
+        });
+        if (revoked.isEmpty()) {
+            return;
+        }
+        JwtProperties.Stateless config = jwtProperties.getStateless();
+        stringRedisTemplate.opsForZSet().add(config.getDenylistKey(), revoked);
+        stringRedisTemplate.convertAndSend(config.getChannel(), body.toString());
+    }
+
+    /**
+     * 只查询本地内存
+     *
+     * @param jti       令牌标识
+     * @param expiresAt 令牌过期时间(毫秒), 用于定位所在的桶
+     * @return 是否已吊销
+     * @throws ServiceBusyException 订阅后尚未成功加载过吊销名单
+     */
+    public boolean isRevoked(String jti, long expiresAt) {
+        if (!synced) {
+            throw new ServiceBusyException("令牌吊销名单尚未加载，请稍后重试", Duration.ofMillis(SYNC_RETRY_INTERVAL));
+        }
+        Set<String> bucket = buckets.get(bucketEnd(expiresAt));
+        return bucket != null && bucket.contains(jti);
+    }
+
+    /**
+     * 接收其他节点广播的吊销通知, 消息每行一条, 格式为 jti:过期时间
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        for (String line : new String(message.getBody(), StandardCharsets.UTF_8).split("\n")) {
+            int separator = line.lastIndexOf(':');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                addLocal(line.substring(0, separator), Long.parseLong(line.substring(separator + 1)));
+            } catch (NumberFormatException e) {
+                log.warn("无法识别的吊销通知: {}", line);
+            }
+        }
+    }
+
+    /**
+     * 订阅(包括断线重连后的重新订阅)确认后全量加载, 之后的吊销都能通过广播收到, 不会落在加载和订阅之间;
+     * 加载失败时按固定间隔重试, 直到成功
+     */
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        while (!sync()) {
+            try {
+                Thread.sleep(SYNC_RETRY_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 删除整桶已过期的令牌
+     */
+    @Scheduled(fixedDelayString = "#{@jwtProperties.stateless.bucket.toMillis()}")
+    public void purgeExpired() {
+        if (jwtProperties.getStateless().isEnabled()) {
+            buckets.headMap(System.currentTimeMillis(), true).clear();
+        }
+    }
+
+    /**
+     * 定期从redis全量同步, 修正丢失的吊销通知, 同时清理redis中已过期的jti
+     */
+    @Scheduled(initialDelayString = "#{@jwtProperties.stateless.syncInterval.toMillis()}",
+            fixedDelayString = "#{@jwtProperties.stateless.syncInterval.toMillis()}")
+    public void scheduledSync() {
+        if (jwtProperties.getStateless().isEnabled()) {
+            sync();
+        }
+    }
+
+    /**
+     * @return 是否同步成功
+     */
+    private boolean sync() {
+        String key = jwtProperties.getStateless().getDenylistKey();
+        long now = System.currentTimeMillis();
+        try {
+            stringRedisTemplate.opsForZSet().removeRangeByScore(key, Double.NEGATIVE_INFINITY, now);
+            Set<ZSetOperations.TypedTuple<String>> revoked =
+                    stringRedisTemplate.opsForZSet().rangeByScoreWithScores(key, now, Double.POSITIVE_INFINITY);
+            if (revoked != null) {
+                for (ZSetOperations.TypedTuple<String> tuple : revoked) {
+                    if (tuple.getValue() != null && tuple.getScore() != null) {
+                        addLocal(tuple.getValue(), tuple.getScore().longValue());
+                    }
+                }
+            }
+            log.info("令牌吊销名单同步完成: {}个, 耗时{}ms",
+                    revoked == null ? 0 : revoked.size(), System.currentTimeMillis() - now);
+            synced = true;
+            return true;
+        } catch (Exception e) {
+            log.warn("令牌吊销名单同步失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void addLocal(String jti, long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        buckets.computeIfAbsent(bucketEnd(expiresAt), end -> ConcurrentHashMap.newKeySet()).add(jti);
+    }
+
+    /**
+     * 过期时间所在桶的结束时间, 桶在结束时间之后整体删除
+     */
+    private long bucketEnd(long expiresAt) {
+        if (expiresAt > Long.MAX_VALUE - bucketMillis) {
+            return Long.MAX_VALUE;
+        }
+        return (expiresAt / bucketMillis + 1) * bucketMillis;
+    }
+}
@@ -0,0 +1,108 @@
+package com.was.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.was.mapper.AuthMapper;
+import com.was.pojo.UserCacheProperties;
+import com.was.pojo.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 用户记录本地缓存
+ * 位于按用户名查询数据库之前, 登录和注册查询用户时先读本地缓存,
+ * 同一用户名的并发加载只会查询一次数据库, 其余请求等待同一次查询的结果,
+ * 用户新增或修改时通过redis频道广播失效通知, 所有节点收到后立即移除本地条目
+ */
+@Component
+@Slf4j
+public class UserRecordCache implements MessageListener {
+
+    @Autowired
+    private UserCacheProperties properties;
+    @Autowired
+    private AuthMapper authMapper;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, User> cache;
+    private Timer loadTimer;
+
+    @PostConstruct
+    public void init() {
+        loadTimer = Timer.builder("was.user.cache.load")
+                .description("缓存未命中时查询数据库加载用户的耗时")
+                .register(meterRegistry);
+        if (!properties.isEnabled()) {
+            log.info("用户记录本地缓存已关闭");
+            return;
+        }
+        cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        // 暴露命中、未命中、淘汰次数等指标
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userRecordCache");
+        listenerContainer.addMessageListener(this, new ChannelTopic(properties.getChannel()));
+    }
+
+    /**
+     * 按用户名获取用户, 本地未命中时查询数据库
+     *
+     * @param userName 用户名
+     * @return 用户, 不存在时返回null
+     */
+    public User get(String userName) {
+        if (cache == null || userName == null) {
+            return load(userName);
+        }
+        // 同一个key的并发加载只会查询一次数据库, 返回null时不会写入缓存
+        return cache.get(userName, this::load);
+    }
+
+    /**
+     * 用户新增或修改后调用, 使本地及其他节点上的缓存条目失效
+     *
+     * @param userName 用户名
+     */
+    public void invalidate(String userName) {
+        if (cache != null) {
+            cache.invalidate(userName);
+        }
+        // 本节点关闭缓存时其他节点可能开启, 仍然广播; 广播在数据库写入之后, 失败时不影响写入的结果
+        try {
+            stringRedisTemplate.convertAndSend(properties.getChannel(), userName);
+        } catch (Exception e) {
+            log.warn("广播用户缓存失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 接收其他节点广播的失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        cache.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private User load(String userName) {
+        return loadTimer.record(() -> authMapper.getUser(userName));
+    }
+}
@@ -0,0 +1,215 @@
+package com.was.security;
+
+import com.was.mapper.AuthMapper;
+import com.was.pojo.UsernameFilterProperties;
+import com.was.utils.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 用户名存在性过滤器
+ * 每次订阅广播频道成功(包括断线重连后的重新订阅)时从数据库批量加载全部用户名到布隆过滤器,
+ * 每次新增用户时写入并广播给其他节点; 订阅确认之后才加载, 加载开始之后其他节点新增的用户名都能通过广播收到,
+ * 断线期间丢失的广播由重新订阅后的重建补齐. 加载完成前所有查询都视为"可能存在".
+ * 用户名按小写写入和查询, 与MySQL默认不区分大小写的排序规则一致
+ */
+@Component
+@Slf4j
+public class UsernameExistenceFilter implements MessageListener, SubscriptionListener {
+
+    @Autowired
+    private UsernameFilterProperties properties;
+    @Autowired
+    private AuthMapper authMapper;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 当前生效的过滤器, 加载完成前为null
+    private volatile BloomFilter current;
+    // 重建过程中的新过滤器, 重建期间新增的用户名同时写入
+    private volatile BloomFilter building;
+    private final AtomicLong count = new AtomicLong();
+    // 本节点标识, 广播消息格式为 节点标识:用户名 或批量的 节点标识;用户名\n用户名..., 收到自己发出的消息时忽略
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // 是否订阅成功过, 订阅之前加载的过滤器会漏掉加载之后其他节点新增的用户名, 不定期重建
+    private volatile boolean subscribed;
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            log.info("用户名过滤器已关闭");
+            return;
+        }
+        listenerContainer.addMessageListener(this, new ChannelTopic(properties.getChannel()));
+        Gauge.builder("was.username.filter.memory", this, f -> f.current == null ? 0 : f.current.memoryBytes())
+                .description("用户名过滤器位数组占用的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("was.username.filter.fpp", this, f -> f.current == null ? 1 : f.current.expectedFalsePositiveRate())
+                .description("用户名过滤器按当前置位比例估算的误判率")
+                .register(meterRegistry);
+        Gauge.builder("was.username.filter.size", count, AtomicLong::get)
+                .description("用户名过滤器中的用户名数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 订阅确认后全量重建, 启动时的首次加载和redis断线重连后补齐丢失的广播都在这里完成;
+     * 在监听容器的任务线程中执行, 不阻塞启动
+     */
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        subscribed = true;
+        rebuild();
+    }
+
+    /**
+     * 定期全量重建, 按实际用户数扩容
+     */
+    @Scheduled(initialDelayString = "#{@usernameFilterProperties.rebuildInterval.toMillis()}",
+            fixedDelayString = "#{@usernameFilterProperties.rebuildInterval.toMillis()}")
+    public void scheduledRebuild() {
+        if (properties.isEnabled() && subscribed) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 从数据库全量重建过滤器
+     */
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            long before = count.get();
+            long expected = Math.max(properties.getExpectedInsertions(), before * 2);
+            BloomFilter filter = new BloomFilter(expected, properties.getFalsePositiveRate());
+            building = filter;
+            AtomicLong loaded = new AtomicLong();
+            authMapper.scanUserNames(context -> {
+                filter.put(normalize(context.getResultObject()));
+                loaded.incrementAndGet();
+            });
+            current = filter;
+            // 重建期间新增的用户名已经计入count, 只把重建前的计数替换为加载的数量, 不能直接set
+            count.addAndGet(loaded.get() - before);
+            log.info("用户名过滤器加载完成: {}个用户名, {}位({}KB), {}个哈希函数, 目标误判率{}, 耗时{}ms",
+                    loaded.get(), filter.bitSize(), filter.memoryBytes() / 1024, filter.hashFunctions(),
+                    properties.getFalsePositiveRate(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("用户名过滤器加载失败, 暂时直接查询数据库: {}", e.getMessage());
+        } finally {
+            building = null;
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * @param userName 用户名
+     * @return false表示一定不存在, true表示可能存在(需要查询数据库确认)
+     */
+    public boolean mightExist(String userName) {
+        BloomFilter filter = current;
+        return filter == null || userName == null || filter.mightContain(normalize(userName));
+    }
+
+    /**
+     * 新增用户后调用, 写入本地过滤器并广播给其他节点
+     *
+     * @param userName 用户名
+     */
+    public void add(String userName) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        addLocal(userName);
+        publish(nodeId + ":" + userName);
+    }
+
+    /**
+     * 批量新增用户后调用, 写入本地过滤器并合并成一条消息广播给其他节点
+     *
+     * @param userNames 用户名
+     */
+    public void addAll(Collection<String> userNames) {
+        if (!properties.isEnabled() || userNames.isEmpty()) {
+            return;
+        }
+        userNames.forEach(this::addLocal);
+        publish(nodeId + ";" + String.join("\n", userNames));
+    }
+
+    /**
+     * 广播在用户写入数据库之后进行, 失败时不影响已经成功的写入;
+     * 其他节点在redis恢复、重新订阅后全量重建时补齐
+     */
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(properties.getChannel(), message);
+        } catch (Exception e) {
+            log.warn("广播新增用户名失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        // 节点标识是UUID, 第一个':'或';'就是分隔符
+        int separator = 0;
+        while (separator < body.length() && body.charAt(separator) != ':' && body.charAt(separator) != ';') {
+            separator++;
+        }
+        if (separator == body.length() || (separator == nodeId.length() && body.startsWith(nodeId))) {
+            return;
+        }
+        if (body.charAt(separator) == ':') {
+            addLocal(body.substring(separator + 1));
+            return;
+        }
+        for (String userName : body.substring(separator + 1).split("\n")) {
+            addLocal(userName);
+        }
+    }
+
+    private void addLocal(String userName) {
+        userName = normalize(userName);
+        BloomFilter filter = current;
+        if (filter != null) {
+            filter.put(userName);
+        }
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(userName);
+        }
+        count.incrementAndGet();
+    }
+
+    private static String normalize(String userName) {
+        return userName.toLowerCase(Locale.ROOT);
+    }
+}
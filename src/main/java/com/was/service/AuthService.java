@@ -4,15 +4,31 @@ import com.was.pojo.Result;
 import com.was.pojo.dto.LoginDTO;
 import com.was.pojo.dto.RegisterDTO;
 import com.was.pojo.vo.LoginVO;
+import com.was.pojo.vo.SessionVO;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.util.List;
+
 public interface AuthService {
     // 注册
     void register(RegisterDTO registerDTO);
 
+    // 检查用户名是否可用
+    boolean isUserNameAvailable(String userName);
+
     // 登录
-    Result<LoginVO> login(LoginDTO loginDTO, HttpServletResponse response);
+    Result<LoginVO> login(LoginDTO loginDTO, HttpServletRequest request, HttpServletResponse response);
 
     // 登出
     Result<Void> logout();
+
+    // 注销所有设备上的会话
+    Result<Void> logoutAll();
+
+    // 列出当前用户的全部会话
+    Result<List<SessionVO>> listSessions();
+
+    // 注销当前用户的某个会话
+    Result<Void> revokeSession(String sessionId);
 }
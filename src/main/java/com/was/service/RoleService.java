@@ -0,0 +1,34 @@
+package com.was.service;
+
+import com.was.pojo.vo.RoleVO;
+
+import java.util.List;
+
+public interface RoleService {
+
+    /**
+     * @return 全部角色及其权限
+     */
+    List<RoleVO> listRoles();
+
+    /**
+     * 替换角色的全部权限, 提交后通知所有节点重新加载, 已登录用户立即按新权限鉴权
+     * @param roleCode 角色编码
+     * @param permissions 权限编码
+     */
+    void updateRolePermissions(String roleCode, List<String> permissions);
+
+    /**
+     * 替换用户的全部角色, 提交后注销该用户的全部会话, 重新登录后生效
+     * @param userId 用户id
+     * @param roles 角色编码
+     */
+    void updateUserRoles(Long userId, List<String> roles);
+
+    /**
+     * 注销这些用户在所有设备上的会话
+     * @param userIds 用户id
+     * @return 注销的会话数
+     */
+    int revokeSessions(List<Long> userIds);
+}
@@ -0,0 +1,19 @@
+package com.was.service;
+
+import com.was.pojo.ExportFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface UserImportService {
+
+    /**
+     * 批量导入用户, 边读边处理, 每处理完一批就写出这一批每行的结果(NDJSON)
+     * @param format 导入文件格式, CSV需要包含userName,password,email表头
+     * @param in 导入文件
+     * @param out 结果输出流
+     * @throws IOException 读取或写出失败
+     */
+    void importUsers(ExportFormat format, InputStream in, OutputStream out) throws IOException;
+}
@@ -1,14 +1,28 @@
 package com.was.service;
 
-import com.was.pojo.vo.UserFormVO;
+import com.was.pojo.ExportFormat;
+import com.was.pojo.dto.UserPageQueryDTO;
+import com.was.pojo.vo.UserPageVO;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
 
 public interface UserService {
 
     /**
-     * 获取用户表单
-     * @return 用户表单
+     * 分页获取用户表单
+     * @param query 分页和过滤条件
+     * @return 当前页用户及下一页游标
      */
-    List<UserFormVO> getUserFrom();
+    UserPageVO pageUsers(UserPageQueryDTO query);
+
+    /**
+     * 流式导出用户, 边读数据库边写出
+     * @param query 过滤条件, 分页参数会被忽略
+     * @param format 导出格式
+     * @param gzip 是否gzip压缩
+     * @param out 输出流
+     * @throws IOException 写出失败(如客户端断开)
+     */
+    void exportUsers(UserPageQueryDTO query, ExportFormat format, boolean gzip, OutputStream out) throws IOException;
 }
@@ -1,5 +1,7 @@
 package com.was.service.impl;
 
+import com.was.cache.UserPageCache;
+import com.was.diagnostics.AuthMetrics;
 import com.was.mapper.AuthMapper;
 import com.was.pojo.JwtProperties;
 import com.was.pojo.Result;
@@ -8,14 +10,24 @@ import com.was.pojo.dto.RegisterDTO;
 import com.was.pojo.entity.LoginUser;
 import com.was.pojo.entity.User;
 import com.was.pojo.vo.LoginVO;
+import com.was.pojo.vo.SessionVO;
+import com.was.security.AuthorityRegistry;
+import com.was.security.LoginThrottle;
+import com.was.security.TokenDenylist;
+import com.was.security.UserRecordCache;
+import com.was.security.UsernameExistenceFilter;
 import com.was.service.AuthService;
-import com.was.utils.JwtUtil;
+import com.was.session.SessionRegistry;
+import com.was.utils.FastJwtVerifier;
+import com.was.utils.JwtCodec;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.ResponseCookie;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -24,7 +36,9 @@ import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class AuthServiceImpl implements AuthService {
@@ -36,9 +50,23 @@ public class AuthServiceImpl implements AuthService {
     @Autowired
     private JwtProperties jwtProperties;
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
-    @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private JwtCodec jwtCodec;
+    @Autowired
+    private UsernameExistenceFilter usernameExistenceFilter;
+    @Autowired
+    private UserRecordCache userRecordCache;
+    @Autowired
+    private UserPageCache userPageCache;
+    @Autowired
+    private AuthMetrics authMetrics;
+    @Autowired
+    private LoginThrottle loginThrottle;
+    @Autowired
+    private TokenDenylist tokenDenylist;
+    @Autowired
+    private SessionRegistry sessionRegistry;
 
     /**
      *  注册
@@ -46,14 +74,45 @@ public class AuthServiceImpl implements AuthService {
      */
     @Override
     public void register(RegisterDTO registerDTO) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            doRegister(registerDTO);
+            success = true;
+        } finally {
+            authMetrics.recordOperation(AuthMetrics.Operation.REGISTER, success, start);
+        }
+    }
+
+    private void doRegister(RegisterDTO registerDTO) {
         User user = new User();
         BeanUtils.copyProperties(registerDTO, user);
-        if (authMapper.getUser(user.getUserName()) != null) {
+        //用户名过滤器判定一定不存在时跳过查询; 可能存在时查询确认, 并发注册同名用户时由唯一键拦截
+        if (usernameExistenceFilter.mightExist(user.getUserName())
+                && userRecordCache.get(user.getUserName()) != null) {
             throw new RuntimeException("用户已存在");
         }
         String encode = passwordEncoder.encode(user.getPassword());
         user.setPassword(encode);
-        authMapper.insertUser(user);
+        try {
+            authMapper.insertUser(user);
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("用户已存在");
+        }
+        usernameExistenceFilter.add(user.getUserName());
+        userRecordCache.invalidate(user.getUserName());
+        userPageCache.invalidate();
+    }
+
+    /**
+     *  检查用户名是否可用
+     *  用户名过滤器判定一定不存在时不查询数据库
+     * @param userName 用户名
+     * @return 可用返回true
+     */
+    @Override
+    public boolean isUserNameAvailable(String userName) {
+        return !usernameExistenceFilter.mightExist(userName) || userRecordCache.get(userName) == null;
     }
 
     /**
@@ -62,26 +121,60 @@ public class AuthServiceImpl implements AuthService {
      * @return 登录用户信息
      */
     @Override
-    public Result<LoginVO> login(LoginDTO loginDTO, HttpServletResponse response) {
+    public Result<LoginVO> login(LoginDTO loginDTO, HttpServletRequest request, HttpServletResponse response) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Result<LoginVO> result = doLogin(loginDTO, request, response);
+            success = true;
+            return result;
+        } finally {
+            authMetrics.recordOperation(AuthMetrics.Operation.LOGIN, success, start);
+        }
+    }
+
+    private Result<LoginVO> doLogin(LoginDTO loginDTO, HttpServletRequest request, HttpServletResponse response) {
 
+        //限流检查，在校验密码之前拒绝超过频率限制或被锁定的请求
+        loginThrottle.acquire(loginDTO.getUserName(), request.getRemoteAddr());
         //AuthenticationManagerauthenticate进行用户认证
         UsernamePasswordAuthenticationToken authenticationToken =
                 new UsernamePasswordAuthenticationToken(loginDTO.getUserName(), loginDTO.getPassword());
-        Authentication authentication = authenticationManager.authenticate(authenticationToken);
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(authenticationToken);
+        } catch (BadCredentialsException e) {
+            //用户名或密码错误，累计失败次数
+            loginThrottle.onFailure(loginDTO.getUserName());
+            throw e;
+        }
         //如果认证没通过，给出对应的提示
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new RuntimeException("用户名或密码错误");
         }
         //如果认证通过了，使用userid生成一个jwt，jwt存入Result返回
         LoginUser loginUser = (LoginUser) authentication.getPrincipal();
+        loginThrottle.onSuccess(loginDTO.getUserName());
         User user = loginUser.getUser();
         String userId = user.getId().toString();
+        //每次登录创建一个新会话，其他设备上的会话不受影响
+        String sessionId = UUID.randomUUID().toString();
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
-        String token = JwtUtil.createJWT(
-                jwtProperties.getUserSecretKey(),
-                jwtProperties.getUserTtl(),
-                claims);
+        claims.put("sid", sessionId);
+        String jti = null;
+        if (jwtProperties.getStateless().isEnabled()) {
+            //无状态模式下令牌携带认证所需的全部信息，jti用于注销时吊销
+            jti = UUID.randomUUID().toString();
+            claims.put("jti", jti);
+            claims.put("userName", user.getUserName());
+            //令牌中只保存角色，权限由各节点按角色展开，角色权限变更对已签发的令牌立即生效
+            claims.put("auth", AuthorityRegistry.roleKey(loginUser.getRoles()));
+        }
+        long now = System.currentTimeMillis();
+        long createStart = System.nanoTime();
+        String token = jwtCodec.createJWT(now, jwtProperties.getUserTtl(), claims);
+        authMetrics.recordJwtCreate(createStart);
         //将jwt令牌写入cookie
         ResponseCookie cookie = ResponseCookie.from(jwtProperties.getUserTokenName(), token)
                 .httpOnly(true)
@@ -91,8 +184,10 @@ public class AuthServiceImpl implements AuthService {
                 .sameSite("Strict")
                 .build();
         response.setHeader("Set-Cookie", cookie.toString());//将cookie写入响应头
-        //把完整的用户信息存入redis，userid作为key
-        redisTemplate.opsForValue().set("login:"+userId, loginUser);
+        //把用户信息和设备信息存入该用户的会话hash，会话id作为字段，过期时间与token有效期一致
+        //无状态模式下过滤器不读取会话，仍然写入是为了列出和注销会话，以及关闭该模式后已签发的令牌继续有效
+        sessionRegistry.create(userId, sessionId, loginUser, request, jti,
+                JwtCodec.expiresAt(now, jwtProperties.getUserTtl()));
         return Result.success(LoginVO.builder()
                 .id(user.getId())
                 .userName(user.getUserName())
@@ -102,17 +197,74 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     public Result<Void> logout() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Result<Void> result = doLogout();
+            success = true;
+            return result;
+        } finally {
+            authMetrics.recordOperation(AuthMetrics.Operation.LOGOUT, success, start);
+        }
+    }
+
+    private Result<Void> doLogout() {
         // 获取 SecurityContextHolder 中的 Authentication 对象
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
         // 从 Authentication 中获取 principal（即 LoginUser 对象）
         LoginUser loginUser = (LoginUser) authentication.getPrincipal();
 
-        Long userId = loginUser.getUser().getId();
+        String userId = loginUser.getUser().getId().toString();
+
+        // details 中是过滤器的令牌校验结果
+        if (authentication.getDetails() instanceof FastJwtVerifier.Verification token) {
+            if (token.sessionId() != null) {
+                // 删除当前会话, 无状态模式签发的令牌同时加入吊销名单
+                sessionRegistry.revoke(userId, token.sessionId());
+            } else if (token.jti() != null) {
+                tokenDenylist.revoke(token.jti(), token.expiresAt());
+            }
+        }
+
+        return Result.success();
+    }
+
+    /**
+     *  注销当前用户在所有设备上的会话
+     */
+    @Override
+    public Result<Void> logoutAll() {
+        sessionRegistry.revokeAll(List.of(currentUserId()));
+        return Result.success();
+    }
 
-        // 删除 redis 中的用户信息
-        redisTemplate.delete("login:" + userId);
+    /**
+     *  列出当前用户的全部会话
+     * @return 会话列表
+     */
+    @Override
+    public Result<List<SessionVO>> listSessions() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String currentSessionId = authentication.getDetails() instanceof FastJwtVerifier.Verification token
+                ? token.sessionId() : null;
+        return Result.success(sessionRegistry.list(currentUserId(), currentSessionId));
+    }
 
+    /**
+     *  注销当前用户的某个会话
+     * @param sessionId 会话id
+     */
+    @Override
+    public Result<Void> revokeSession(String sessionId) {
+        if (!sessionRegistry.revoke(currentUserId(), sessionId)) {
+            return Result.error("会话不存在或已过期");
+        }
         return Result.success();
     }
+
+    private static String currentUserId() {
+        LoginUser loginUser = (LoginUser) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return loginUser.getUser().getId().toString();
+    }
 }
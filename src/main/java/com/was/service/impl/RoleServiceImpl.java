@@ -0,0 +1,109 @@
+package com.was.service.impl;
+
+import com.was.exception.BadRequestException;
+import com.was.mapper.RoleMapper;
+import com.was.pojo.entity.RolePermission;
+import com.was.pojo.vo.RoleVO;
+import com.was.security.AuthorityRegistry;
+import com.was.security.RequiresPermission;
+import com.was.service.RoleService;
+import com.was.session.SessionRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+@Slf4j
+public class RoleServiceImpl implements RoleService {
+
+    @Autowired
+    private RoleMapper roleMapper;
+    @Autowired
+    private AuthorityRegistry authorityRegistry;
+    @Autowired
+    private SessionRegistry sessionRegistry;
+
+    @Override
+    @RequiresPermission("role:manage")
+    public List<RoleVO> listRoles() {
+        Map<String, RoleVO> roles = new LinkedHashMap<>();
+        for (RolePermission row : roleMapper.listRolePermissions()) {
+            RoleVO role = roles.computeIfAbsent(row.getRoleCode(), code -> RoleVO.builder()
+                    .code(code)
+                    .name(row.getRoleName())
+                    .permissions(new ArrayList<>())
+                    .build());
+            if (row.getPermissionCode() != null) {
+                role.getPermissions().add(row.getPermissionCode());
+            }
+        }
+        return new ArrayList<>(roles.values());
+    }
+
+    @Override
+    @RequiresPermission("role:manage")
+    @Transactional
+    public void updateRolePermissions(String roleCode, List<String> permissions) {
+        Long roleId = roleMapper.findRoleId(roleCode);
+        if (roleId == null) {
+            throw new BadRequestException("角色不存在: " + roleCode);
+        }
+        Set<String> codes = new LinkedHashSet<>(permissions);
+        List<Long> permissionIds = codes.isEmpty() ? List.of() : roleMapper.findPermissionIds(codes);
+        if (permissionIds.size() != codes.size()) {
+            throw new BadRequestException("包含不存在的权限: " + codes);
+        }
+        roleMapper.deleteRolePermissions(roleId);
+        if (!permissionIds.isEmpty()) {
+            roleMapper.insertRolePermissions(roleId, permissionIds);
+        }
+        log.info("角色{}的权限修改为{}", roleCode, codes);
+        // 提交之后再通知, 其他节点重新加载时一定能读到新数据
+        afterCommit(() -> authorityRegistry.publishChange(roleCode));
+    }
+
+    @Override
+    @RequiresPermission("role:manage")
+    @Transactional
+    public void updateUserRoles(Long userId, List<String> roles) {
+        Set<String> codes = new LinkedHashSet<>(roles);
+        List<Long> roleIds = codes.isEmpty() ? List.of() : roleMapper.findRoleIds(codes);
+        if (roleIds.size() != codes.size()) {
+            throw new BadRequestException("包含不存在的角色: " + codes);
+        }
+        roleMapper.deleteUserRoles(userId);
+        if (!roleIds.isEmpty()) {
+            roleMapper.insertUserRoles(userId, roleIds);
+        }
+        log.info("用户{}的角色修改为{}", userId, codes);
+        // 角色随会话保存, 注销后重新登录时加载新角色
+        afterCommit(() -> sessionRegistry.revokeAll(List.of(userId.toString())));
+    }
+
+    @Override
+    @RequiresPermission("session:revoke")
+    public int revokeSessions(List<Long> userIds) {
+        Set<String> ids = new LinkedHashSet<>();
+        userIds.forEach(userId -> ids.add(userId.toString()));
+        return sessionRegistry.revokeAll(ids);
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,29 +1,48 @@
 package com.was.service.impl;
 
 import com.was.mapper.AuthMapper;
+import com.was.pojo.RbacProperties;
 import com.was.pojo.entity.LoginUser;
 import com.was.pojo.entity.User;
+import com.was.security.AuthorityRegistry;
+import com.was.security.UserRecordCache;
+import com.was.security.UsernameExistenceFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
 
+    @Autowired
+    private UsernameExistenceFilter usernameExistenceFilter;
+    @Autowired
+    private UserRecordCache userRecordCache;
     @Autowired
     private AuthMapper authMapper;
+    @Autowired
+    private AuthorityRegistry authorityRegistry;
+    @Autowired
+    private RbacProperties rbacProperties;
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
-        //查询数据库
-        User user = authMapper.getUser(username);
+        //用户名过滤器判定一定不存在时直接返回, 不查询数据库
+        //否则查询本地缓存，未命中时查询数据库
+        User user = usernameExistenceFilter.mightExist(username) ? userRecordCache.get(username) : null;
         //没有查询到用户，抛出异常
         if (user == null) {
             throw new UsernameNotFoundException("用户名或密码错误");
         }
-        //查询到用户，封装成UserDetails返回
-        return new LoginUser(user);
+        //查询到用户，加载角色并展开成权限，封装成UserDetails返回
+        //角色不放入用户记录缓存，修改用户角色后下次登录立即生效
+        List<String> roles = rbacProperties.isEnabled() ? authMapper.getUserRoles(user.getId()) : List.of();
+        LoginUser loginUser = new LoginUser(user, roles);
+        authorityRegistry.resolve(loginUser);
+        return loginUser;
     }
 }
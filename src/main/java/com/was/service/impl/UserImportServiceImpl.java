@@ -0,0 +1,427 @@
+package com.was.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.was.cache.UserPageCache;
+import com.was.mapper.AuthMapper;
+import com.was.mapper.UserMapper;
+import com.was.pojo.ExportFormat;
+import com.was.pojo.PasswordProperties;
+import com.was.pojo.UserImportProperties;
+import com.was.pojo.dto.RegisterDTO;
+import com.was.pojo.entity.User;
+import com.was.pojo.vo.UserImportResultVO;
+import com.was.security.UsernameExistenceFilter;
+import com.was.service.UserImportService;
+import com.was.utils.CsvReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量导入用户
+ * 按batchSize分批处理: 校验 -> 一条IN查询查重 -> 在导入专用线程池中并行计算BCrypt -> BATCH执行器批量插入,
+ * 配合JDBC的rewriteBatchedStatements=true, 一批插入合并成一条多值INSERT
+ */
+@Service
+@Slf4j
+public class UserImportServiceImpl implements UserImportService {
+
+    @Autowired
+    private UserImportProperties properties;
+    @Autowired
+    private PasswordProperties passwordProperties;
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+    @Autowired
+    private AuthMapper authMapper;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private UsernameExistenceFilter usernameExistenceFilter;
+    @Autowired
+    private UserPageCache userPageCache;
+    @Autowired
+    private Validator validator;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private BCryptPasswordEncoder passwordEncoder;
+    private ExecutorService hashExecutor;
+    private ObjectWriter resultWriter;
+
+    @PostConstruct
+    public void init() {
+        passwordEncoder = new BCryptPasswordEncoder(passwordProperties.getStrength());
+        AtomicInteger index = new AtomicInteger();
+        // 每批最多batchSize个任务在排队, 线程数固定
+        hashExecutor = Executors.newFixedThreadPool(properties.getHashThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "import-hash-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        resultWriter = objectMapper.writerFor(UserImportResultVO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        hashExecutor.shutdownNow();
+    }
+
+    /**
+     * 批量导入用户, 每处理完一批就写出这一批每行的结果(NDJSON)
+     * @param format 导入文件格式, CSV需要包含userName,password,email表头
+     * @param in 导入文件
+     * @param out 结果输出流
+     * @throws IOException 读取或写出失败
+     */
+    @Override
+    public void importUsers(ExportFormat format, InputStream in, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        RowSource source = format == ExportFormat.CSV
+                ? new CsvRowSource(reader, properties.getMaxLineLength())
+                : new NdjsonRowSource(reader, properties.getMaxLineLength());
+        ImportState state = new ImportState();
+        List<ImportRow> batch = new ArrayList<>(properties.getBatchSize());
+        ImportRow row;
+        while ((row = source.next()) != null) {
+            // 超过最大行数时不再读取剩余数据, 处理完已读的部分后以一行aborted结束
+            if (state.rows == properties.getMaxRows()) {
+                processBatch(batch, state, generator);
+                resultWriter.writeValue(generator, new UserImportResultVO(row.line, null, UserImportResultVO.ABORTED,
+                        "超过单次导入的最大行数" + properties.getMaxRows() + ", 之后的数据未处理"));
+                generator.writeRaw('\n');
+                generator.flush();
+                log.warn("批量导入超过最大行数{}, 已中止: 创建{}个用户", properties.getMaxRows(), state.created);
+                return;
+            }
+            state.rows++;
+            batch.add(row);
+            if (batch.size() == properties.getBatchSize()) {
+                processBatch(batch, state, generator);
+                batch.clear();
+            }
+        }
+        processBatch(batch, state, generator);
+        generator.flush();
+        log.info("批量导入完成: 共{}行, 创建{}个用户, 耗时{}ms",
+                state.rows, state.created, System.currentTimeMillis() - start);
+    }
+
+    private void processBatch(List<ImportRow> batch, ImportState state, JsonGenerator generator) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // 校验, 文件内去重
+        List<ImportRow> candidates = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            if (row.result != null) {
+                continue;
+            }
+            Set<ConstraintViolation<RegisterDTO>> violations = validator.validate(row.dto);
+            if (!violations.isEmpty()) {
+                row.fail(UserImportResultVO.INVALID, violations.iterator().next().getMessage());
+            } else if (!state.seen.add(row.dto.getUserName())) {
+                row.fail(UserImportResultVO.DUPLICATE, "文件中用户名重复");
+            } else {
+                candidates.add(row);
+            }
+        }
+
+        // 一次查询找出已存在的用户名
+        if (!candidates.isEmpty()) {
+            Set<String> existing = new HashSet<>(userMapper.findExistingUserNames(
+                    candidates.stream().map(r -> r.dto.getUserName()).toList()));
+            candidates.removeIf(r -> {
+                if (existing.contains(r.dto.getUserName())) {
+                    r.fail(UserImportResultVO.DUPLICATE, "用户已存在");
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        // 并行计算密码哈希
+        List<Future<String>> hashes = new ArrayList<>(candidates.size());
+        for (ImportRow row : candidates) {
+            String password = row.dto.getPassword();
+            hashes.add(hashExecutor.submit(() -> passwordEncoder.encode(password)));
+        }
+        List<User> users = new ArrayList<>(candidates.size());
+        List<ImportRow> inserting = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            ImportRow row = candidates.get(i);
+            try {
+                users.add(User.builder()
+                        .userName(row.dto.getUserName())
+                        .password(hashes.get(i).get())
+                        .email(row.dto.getEmail())
+                        .build());
+                inserting.add(row);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("导入被中断", e);
+            } catch (ExecutionException e) {
+                row.fail(UserImportResultVO.FAILED, "密码加密失败");
+            }
+        }
+
+        // 批量插入
+        List<String> created = insert(users, inserting);
+        state.created += created.size();
+        usernameExistenceFilter.addAll(created);
+        // 新用户名不会在UserRecordCache中(未命中不缓存), 无需失效
+        if (!created.isEmpty()) {
+            userPageCache.invalidate();
+        }
+
+        for (ImportRow row : batch) {
+            resultWriter.writeValue(generator, row.result);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    /**
+     * 使用BATCH执行器插入一批用户, 失败时(如并发注册导致唯一键冲突)逐行插入以确定每行的结果
+     * @return 插入成功的用户名
+     */
+    private List<String> insert(List<User> users, List<ImportRow> rows) {
+        List<String> created = new ArrayList<>(users.size());
+        if (users.isEmpty()) {
+            return created;
+        }
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            AuthMapper batchMapper = session.getMapper(AuthMapper.class);
+            for (User user : users) {
+                batchMapper.insertUser(user);
+            }
+            session.flushStatements();
+            session.commit();
+            for (int i = 0; i < users.size(); i++) {
+                rows.get(i).succeed();
+                created.add(users.get(i).getUserName());
+            }
+            return created;
+        } catch (Exception e) {
+            log.warn("批量插入失败, 改为逐行插入: {}", e.getMessage());
+        }
+        for (int i = 0; i < users.size(); i++) {
+            try {
+                authMapper.insertUser(users.get(i));
+                rows.get(i).succeed();
+                created.add(users.get(i).getUserName());
+            } catch (DuplicateKeyException e) {
+                rows.get(i).fail(UserImportResultVO.DUPLICATE, "用户已存在");
+            } catch (Exception e) {
+                log.warn("导入用户{}失败: {}", users.get(i).getUserName(), e.getMessage());
+                rows.get(i).fail(UserImportResultVO.FAILED, "写入数据库失败");
+            }
+        }
+        return created;
+    }
+
+    /**
+     * 导入文件中的一行
+     */
+    private static final class ImportRow {
+        private final long line;
+        private final RegisterDTO dto;
+        private UserImportResultVO result;
+
+        private ImportRow(long line, RegisterDTO dto) {
+            this.line = line;
+            this.dto = dto;
+        }
+
+        private static ImportRow invalid(long line, String message) {
+            ImportRow row = new ImportRow(line, null);
+            row.result = new UserImportResultVO(line, null, UserImportResultVO.INVALID, message);
+            return row;
+        }
+
+        private void fail(String status, String message) {
+            result = new UserImportResultVO(line, dto.getUserName(), status, message);
+        }
+
+        private void succeed() {
+            result = new UserImportResultVO(line, dto.getUserName(), UserImportResultVO.CREATED, null);
+        }
+    }
+
+    private static final class ImportState {
+        // 文件中出现过的用户名, 用于文件内查重
+        private final Set<String> seen = new HashSet<>();
+        private int rows;
+        private int created;
+    }
+
+    private interface RowSource {
+        /**
+         * @return 下一行, 没有更多数据时返回null
+         */
+        ImportRow next() throws IOException;
+    }
+
+    /**
+     * 每行一个JSON对象, 字段与注册接口相同
+     */
+    private final class NdjsonRowSource implements RowSource {
+        private final BufferedReader reader;
+        private final int maxLineLength;
+        private final StringBuilder buffer = new StringBuilder();
+        private boolean tooLong;
+        private long line;
+
+        private NdjsonRowSource(BufferedReader reader, int maxLineLength) {
+            this.reader = reader;
+            this.maxLineLength = maxLineLength;
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            String text;
+            do {
+                text = readLine();
+                line++;
+            } while (text != null && !tooLong && text.isBlank());
+            if (text == null) {
+                return null;
+            }
+            if (tooLong) {
+                return ImportRow.invalid(line, "行长度超过" + maxLineLength);
+            }
+            try {
+                return new ImportRow(line, objectMapper.readValue(text, RegisterDTO.class));
+            } catch (IOException e) {
+                return ImportRow.invalid(line, "JSON格式错误");
+            }
+        }
+
+        /**
+         * 与BufferedReader.readLine相同, 但一行最多保存maxLineLength个字符, 超出的部分读到行尾后丢弃
+         * @return 一行内容, 没有更多数据时返回null
+         */
+        private String readLine() throws IOException {
+            buffer.setLength(0);
+            tooLong = false;
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            while (c != -1 && c != '\n') {
+                if (c != '\r') {
+                    if (buffer.length() < maxLineLength) {
+                        buffer.append((char) c);
+                    } else {
+                        tooLong = true;
+                    }
+                }
+                c = reader.read();
+            }
+            return buffer.toString();
+        }
+    }
+
+    /**
+     * 第一行是表头, 按表头中的userName,password,email列名取值, 列顺序不限
+     */
+    private static final class CsvRowSource implements RowSource {
+        private final CsvReader reader;
+        private long line;
+        private int userNameIndex = -1;
+        private int passwordIndex = -1;
+        private int emailIndex = -1;
+        private boolean headerError;
+
+        private CsvRowSource(BufferedReader reader, int maxLineLength) {
+            this.reader = new CsvReader(reader, maxLineLength);
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            if (line == 0) {
+                List<String> header;
+                try {
+                    header = reader.next();
+                } catch (CsvReader.RecordTooLongException e) {
+                    header = List.of();
+                }
+                line++;
+                if (header == null) {
+                    return null;
+                }
+                for (int i = 0; i < header.size(); i++) {
+                    switch (header.get(i).trim().toLowerCase(Locale.ROOT)) {
+                        case "username" -> userNameIndex = i;
+                        case "password" -> passwordIndex = i;
+                        case "email" -> emailIndex = i;
+                        default -> {
+                        }
+                    }
+                }
+                if (userNameIndex < 0 || passwordIndex < 0 || emailIndex < 0) {
+                    headerError = true;
+                    return ImportRow.invalid(line, "CSV表头必须包含userName,password,email");
+                }
+            }
+            if (headerError) {
+                return null;
+            }
+            List<String> fields;
+            do {
+                line++;
+                try {
+                    fields = reader.next();
+                } catch (CsvReader.RecordTooLongException e) {
+                    return ImportRow.invalid(line, e.getMessage());
+                }
+            } while (fields != null && fields.size() == 1 && fields.get(0).isBlank());
+            if (fields == null) {
+                return null;
+            }
+            RegisterDTO dto = new RegisterDTO();
+            dto.setUserName(field(fields, userNameIndex));
+            dto.setPassword(field(fields, passwordIndex));
+            dto.setEmail(field(fields, emailIndex));
+            return new ImportRow(line, dto);
+        }
+
+        private static String field(List<String> fields, int index) {
+            return index < fields.size() ? fields.get(index) : null;
+        }
+    }
+}
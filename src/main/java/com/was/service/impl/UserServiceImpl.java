@@ -1,25 +1,186 @@
 package com.was.service.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.was.mapper.UserMapper;
+import com.was.pojo.ExportFormat;
+import com.was.pojo.dto.UserPageQueryDTO;
 import com.was.pojo.vo.UserFormVO;
+import com.was.pojo.vo.UserPageVO;
 import com.was.service.UserService;
+import com.was.utils.PageTokens;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @Service
+@Slf4j
 public class UserServiceImpl implements UserService {
 
+    // 默认每页条数
+    private static final int DEFAULT_LIMIT = 50;
+    // 每页最大条数
+    private static final int MAX_LIMIT = 500;
+    // 导出时的写缓冲区大小
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "id,username,email,createTime,updateTime\r\n";
+    private static final DateTimeFormatter CSV_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     @Autowired
     private UserMapper userMapper;
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // NDJSON逐行写出, 关闭每行后的flush, 由缓冲区决定何时写到网络
+    private ObjectWriter ndjsonWriter;
+
+    @PostConstruct
+    public void init() {
+        ndjsonWriter = objectMapper.writerFor(UserFormVO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                // 每行后自行写换行, 不要默认的空格分隔符
+                .withRootValueSeparator("");
+    }
+
+    /**
+     * 分页获取用户表单
+     * 多查一条用来判断是否还有下一页
+     * @param query 分页和过滤条件
+     * @return 当前页用户及下一页游标
+     */
+    @Override
+    public UserPageVO pageUsers(UserPageQueryDTO query) {
+        int limit = query.getLimit() == null ? DEFAULT_LIMIT : Math.min(Math.max(query.getLimit(), 1), MAX_LIMIT);
+        Long afterId = query.getPageToken() == null || query.getPageToken().isEmpty()
+                ? null : PageTokens.decode(query.getPageToken());
+
+        List<UserFormVO> users = userMapper.pageUsers(afterId, limit + 1,
+                escapeLike(query.getUsernamePrefix()), query.getCreatedFrom(), query.getCreatedTo());
+
+        String nextPageToken = null;
+        if (users.size() > limit) {
+            users = users.subList(0, limit);
+            nextPageToken = PageTokens.encode(users.get(limit - 1).getId());
+        }
+        return new UserPageVO(users, nextPageToken);
+    }
 
     /**
-     * 获取用户表单
-     * @return 用户表单
+     * 流式导出用户
+     * 在独立的SqlSession中打开游标, MySQL按fetchSize分批返回, 每读一行写一行, 内存占用与总行数无关,
+     * 第一行写出后立即flush, 客户端在查询结束前就能收到数据
+     * @param query 过滤条件, 分页参数会被忽略
+     * @param format 导出格式
+     * @param gzip 是否gzip压缩
+     * @param out 输出流
+     * @throws IOException 写出失败(如客户端断开)
      */
     @Override
-    public List<UserFormVO> getUserFrom() {
-        return userMapper.getUserFrom();
+    public void exportUsers(UserPageQueryDTO query, ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        // syncFlush使flush时压缩流也把已有数据写出
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, EXPORT_BUFFER_SIZE, true) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(gzipOut != null ? gzipOut : out, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+        long rows = 0;
+        try (SqlSession session = sqlSessionFactory.openSession();
+             Cursor<UserFormVO> cursor = session.getMapper(UserMapper.class).scanUsers(
+                     escapeLike(query.getUsernamePrefix()), query.getCreatedFrom(), query.getCreatedTo())) {
+            if (format == ExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+                for (UserFormVO user : cursor) {
+                    writeCsvRow(writer, user);
+                    if (++rows == 1) {
+                        writer.flush();
+                    }
+                }
+            } else {
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                for (UserFormVO user : cursor) {
+                    ndjsonWriter.writeValue(generator, user);
+                    generator.writeRaw('\n');
+                    if (++rows == 1) {
+                        generator.flush();
+                    }
+                }
+                generator.flush();
+            }
+        }
+        writer.flush();
+        if (gzipOut != null) {
+            gzipOut.finish();
+        }
+        log.info("导出用户完成: 格式{}, {}行, 耗时{}ms", format, rows, System.currentTimeMillis() - start);
+    }
+
+    private static void writeCsvRow(Writer writer, UserFormVO user) throws IOException {
+        writer.write(String.valueOf(user.getId()));
+        writer.write(',');
+        writeCsvField(writer, user.getUsername());
+        writer.write(',');
+        writeCsvField(writer, user.getEmail());
+        writer.write(',');
+        writeCsvTime(writer, user.getCreateTime());
+        writer.write(',');
+        writeCsvTime(writer, user.getUpdateTime());
+        writer.write("\r\n");
+    }
+
+    private static void writeCsvTime(Writer writer, LocalDateTime time) throws IOException {
+        if (time != null) {
+            CSV_TIME_FORMAT.formatTo(time, writer);
+        }
+    }
+
+    /**
+     * 按RFC 4180转义CSV字段, 以公式字符开头的值加单引号前缀, 防止在表格软件中被当作公式执行
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean formula = "=+-@\t\r".indexOf(value.charAt(0)) >= 0;
+        boolean quote = formula || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        if (formula) {
+            writer.write('\'');
+        }
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * 转义LIKE中的通配符, 使前缀按字面匹配
+     */
+    private static String escapeLike(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return prefix;
+        }
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 }
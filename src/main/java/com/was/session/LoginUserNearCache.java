@@ -0,0 +1,164 @@
+package com.was.session;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.was.diagnostics.AuthMetrics;
+import com.was.pojo.SessionProperties;
+import com.was.pojo.entity.LoginUser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 登录用户本地缓存
+ * 位于会话存储(SessionStore)之前, 以 userId:sid 为key, 命中时省去一次redis往返和反序列化, 未命中时读取会话存储
+ * 会话删除时通过redis频道广播失效通知, 所有节点收到后立即移除本地条目;
+ * 通知消息每行一条, userId:sid 表示单个会话, 只有userId表示该用户的全部会话
+ */
+@Component
+@Slf4j
+public class LoginUserNearCache implements MessageListener {
+
+    @Autowired
+    private SessionProperties sessionProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private AuthMetrics authMetrics;
+    @Autowired
+    private SessionStore sessionStore;
+    @Autowired
+    private SessionStoreBreaker sessionStoreBreaker;
+
+    private Cache<String, LoginUser> cache;
+
+    @PostConstruct
+    public void init() {
+        SessionProperties.NearCache config = sessionProperties.getNearCache();
+        if (!config.isEnabled()) {
+            log.info("登录用户本地缓存已关闭");
+            return;
+        }
+        if (sessionProperties.getStore() == SessionProperties.StoreType.LOCAL) {
+            // 会话本身就在进程内, 本地缓存省不下网络往返, 失效通知还要依赖redis
+            log.info("使用进程内会话存储, 不需要登录用户本地缓存");
+            return;
+        }
+        cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+        // 暴露命中、未命中、淘汰次数等指标
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "loginUserNearCache");
+        listenerContainer.addMessageListener(this, new ChannelTopic(config.getChannel()));
+    }
+
+    /**
+     * 获取登录用户, 本地未命中时读取会话存储
+     *
+     * @param userId    用户id
+     * @param sessionId 会话id
+     * @return 登录用户, 会话不存在或已过期时返回null
+     * @throws com.was.exception.ServiceBusyException 会话存储熔断或查询失败
+     */
+    public LoginUser get(String userId, String sessionId) {
+        if (cache == null) {
+            return load(userId, sessionId);
+        }
+        // 同一个key的并发加载只会访问一次redis, 返回null时不会写入缓存
+        return cache.get(userId + ":" + sessionId, key -> load(userId, sessionId));
+    }
+
+    /**
+     * 使本地及其他节点上单个会话的缓存条目失效
+     * 本节点关闭缓存时其他节点仍可能开启, 同样需要通知
+     *
+     * @param userId    用户id
+     * @param sessionId 会话id
+     */
+    public void invalidate(String userId, String sessionId) {
+        String key = userId + ":" + sessionId;
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+        publish(key);
+    }
+
+    /**
+     * 使本地及其他节点上这些用户全部会话的缓存条目失效, 合并成一条通知
+     *
+     * @param userIds 用户id
+     */
+    public void invalidateUsers(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String body = String.join("\n", userIds);
+        if (cache != null) {
+            evict(body);
+        }
+        publish(body);
+    }
+
+    /**
+     * 会话已经在redis中删除, 通知失败时其他节点的缓存条目最迟在ttl后过期, 不影响本次操作
+     */
+    private void publish(String body) {
+        try {
+            stringRedisTemplate.convertAndSend(sessionProperties.getNearCache().getChannel(), body);
+        } catch (Exception e) {
+            log.warn("广播会话缓存失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 接收其他节点广播的失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        evict(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void evict(String body) {
+        Set<String> userIds = new HashSet<>();
+        for (String line : body.split("\n")) {
+            if (line.indexOf(':') > 0) {
+                cache.invalidate(line);
+            } else if (!line.isEmpty()) {
+                userIds.add(line);
+            }
+        }
+        if (!userIds.isEmpty()) {
+            // 按用户失效需要遍历本地缓存, 一条通知只遍历一次
+            cache.asMap().keySet().removeIf(key -> userIds.contains(key.substring(0, key.indexOf(':'))));
+        }
+    }
+
+    private LoginUser load(String userId, String sessionId) {
+        long start = System.nanoTime();
+        try {
+            // 会话存储故障时由熔断器快速失败
+            return sessionStoreBreaker.call(() -> sessionStore.get(userId, sessionId));
+        } finally {
+            authMetrics.recordSessionLoad(start);
+        }
+    }
+}
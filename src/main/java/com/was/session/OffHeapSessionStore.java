@@ -0,0 +1,543 @@
+package com.was.session;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.support.spring.GenericFastJsonRedisSerializer;
+import com.was.exception.ServiceBusyException;
+import com.was.pojo.SessionProperties;
+import com.was.pojo.entity.LoginUser;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内的堆外会话存储, 只适用于单节点部署
+ * 启动时按容量一次分配一块直接内存(配置了持久化文件时映射到文件), 划分成等长的槽, 每个会话占一个槽:
+ * [状态 int][链表指针 int][userId long][sid高64位 long][sid低64位 long][过期时间 long][会话长度 short][设备信息长度 short][会话数据][设备信息]
+ * 会话索引(userId+sid -> 槽)和用户索引(userId -> 该用户的第一个会话)是两张线性探测的int哈希表, 同样放在直接内存中;
+ * 同一用户的会话通过槽内的链表指针串起来, 空闲槽也通过链表指针串成空闲链表.
+ * 会话数量不影响堆大小和GC; 过期的会话在访问时和定期清理时释放, 槽用完时拒绝新的登录.
+ * 使用持久化文件时, 启动后扫描全部槽重建两张索引, 文件与当前容量或槽大小不一致时丢弃其中的会话
+ */
+@Slf4j
+public class OffHeapSessionStore implements SessionStore, DisposableBean {
+
+    private static final int MAGIC = 0x57415331;
+    private static final int HEADER_SIZE = 64;
+    // 文件头中的字段
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_CAPACITY = 4;
+    private static final int HEADER_SLOT_SIZE = 8;
+    // 槽中的字段
+    private static final int STATE = 0;
+    private static final int NEXT = 4;
+    private static final int USER_ID = 8;
+    private static final int SID_HIGH = 16;
+    private static final int SID_LOW = 24;
+    private static final int EXPIRES_AT = 32;
+    private static final int SESSION_LENGTH = 40;
+    private static final int META_LENGTH = 42;
+    private static final int PAYLOAD = 44;
+    // 槽至少要能放下会话数据和不含User-Agent的设备信息
+    private static final int MIN_SLOT_SIZE = 256;
+
+    private static final int FREE = 0;
+    private static final int USED = 1;
+    private static final int NONE = -1;
+
+    // 只用来编解码LoginUser, 与redis中的会话数据格式相同
+    private final SessionRedisSerializer serializer = new SessionRedisSerializer(new GenericFastJsonRedisSerializer());
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final int capacity;
+    private final int slotSize;
+    private ByteBuffer slots;
+    // 持久化时为映射的文件, 否则为null
+    private MappedByteBuffer mapped;
+    // 两张索引表的条目为槽序号+1, 0表示空
+    private ByteBuffer sessionIndex;
+    private ByteBuffer userIndex;
+    private int indexMask;
+    private int freeHead = NONE;
+    private volatile int used;
+
+    public OffHeapSessionStore(SessionProperties sessionProperties, MeterRegistry meterRegistry) {
+        SessionProperties.Local config = sessionProperties.getLocal();
+        capacity = config.getCapacity();
+        slotSize = config.getSlotSize();
+        if (capacity <= 0 || slotSize < MIN_SLOT_SIZE || HEADER_SIZE + (long) capacity * slotSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("进程内会话存储配置不合法: capacity=" + capacity + ", slotSize=" + slotSize);
+        }
+        int size = HEADER_SIZE + capacity * slotSize;
+        if (StringUtils.hasText(config.getFile())) {
+            mapped = map(Path.of(config.getFile()), size);
+            slots = mapped;
+        } else {
+            slots = ByteBuffer.allocateDirect(size);
+        }
+        slots.putInt(HEADER_MAGIC, MAGIC).putInt(HEADER_CAPACITY, capacity).putInt(HEADER_SLOT_SIZE, slotSize);
+        // 索引表的大小至少是容量的两倍, 保证探测序列很短且一定能遇到空位
+        int indexSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        indexMask = indexSize - 1;
+        sessionIndex = ByteBuffer.allocateDirect(indexSize * 4);
+        userIndex = ByteBuffer.allocateDirect(indexSize * 4);
+        rebuild();
+
+        Gauge.builder("was.session.local.sessions", this, store -> store.used)
+                .description("进程内会话存储中的会话数")
+                .register(meterRegistry);
+        Gauge.builder("was.session.local.capacity", this, store -> store.capacity)
+                .description("进程内会话存储的容量")
+                .register(meterRegistry);
+        log.info("进程内会话存储已启用: 容量{}, 槽大小{}字节, 恢复{}个会话{}", capacity, slotSize, used,
+                mapped == null ? "" : ", 持久化文件" + config.getFile());
+    }
+
+    @Override
+    public void destroy() {
+        if (mapped == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            mapped.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 定期清理过期的会话, 持久化时把修改写回文件
+     */
+    @Scheduled(initialDelayString = "#{@sessionProperties.local.sweepInterval.toMillis()}",
+            fixedDelayString = "#{@sessionProperties.local.sweepInterval.toMillis()}")
+    public void sweep() {
+        int removed;
+        lock.writeLock().lock();
+        try {
+            removed = sweep(System.currentTimeMillis());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (mapped != null) {
+            mapped.force();
+        }
+        log.debug("清理了{}个过期会话, 当前{}个会话", removed, used);
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> create(String userId, String sessionId, LoginUser loginUser,
+                                                   Map<String, Object> meta, long now, long ttlMillis, int maxSessions) {
+        long user = Long.parseLong(userId);
+        UUID sid = UUID.fromString(sessionId);
+        byte[] session = serializer.serialize(loginUser);
+        byte[] metaBytes = encodeMeta(meta, session.length);
+        Map<String, Map<String, Object>> evicted = new LinkedHashMap<>();
+        lock.writeLock().lock();
+        try {
+            int existing = findSession(user, sid.getMostSignificantBits(), sid.getLeastSignificantBits());
+            if (existing != NONE) {
+                release(existing);
+            }
+            // 清理该用户已过期的会话, 达到上限时淘汰最早过期的会话
+            int[] live = userSlots(user);
+            int count = 0;
+            for (int slot : live) {
+                if (expiresAt(slot) <= now) {
+                    release(slot);
+                } else {
+                    live[count++] = slot;
+                }
+            }
+            if (count >= maxSessions) {
+                Integer[] order = new Integer[count];
+                for (int i = 0; i < count; i++) {
+                    order[i] = live[i];
+                }
+                Arrays.sort(order, (a, b) -> Long.compare(expiresAt(a), expiresAt(b)));
+                for (int i = 0; i <= count - maxSessions; i++) {
+                    evicted.put(sessionId(order[i]), readMeta(order[i]));
+                    release(order[i]);
+                }
+            }
+            if (freeHead == NONE && sweep(now) == 0) {
+                throw new ServiceBusyException("登录会话数已达上限，请稍后重试", Duration.ofSeconds(1));
+            }
+            int slot = freeHead;
+            int base = offset(slot);
+            freeHead = slots.getInt(base + NEXT);
+            slots.putLong(base + USER_ID, user)
+                    .putLong(base + SID_HIGH, sid.getMostSignificantBits())
+                    .putLong(base + SID_LOW, sid.getLeastSignificantBits())
+                    .putLong(base + EXPIRES_AT, now + ttlMillis)
+                    .putShort(base + SESSION_LENGTH, (short) session.length)
+                    .putShort(base + META_LENGTH, (short) metaBytes.length)
+                    .put(base + PAYLOAD, session)
+                    .put(base + PAYLOAD + session.length, metaBytes)
+                    .putInt(base + STATE, USED);
+            index(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return evicted;
+    }
+
+    @Override
+    public LoginUser get(String userId, String sessionId) {
+        long user;
+        UUID sid;
+        try {
+            user = Long.parseLong(userId);
+            sid = UUID.fromString(sessionId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        byte[] session;
+        lock.readLock().lock();
+        try {
+            int slot = findSession(user, sid.getMostSignificantBits(), sid.getLeastSignificantBits());
+            if (slot == NONE || expiresAt(slot) <= System.currentTimeMillis()) {
+                return null;
+            }
+            int base = offset(slot);
+            session = new byte[slots.getShort(base + SESSION_LENGTH) & 0xFFFF];
+            slots.get(base + PAYLOAD, session);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return (LoginUser) serializer.deserialize(session);
+    }
+
+    @Override
+    public List<StoredSession> list(String userId) {
+        long user = Long.parseLong(userId);
+        long now = System.currentTimeMillis();
+        List<StoredSession> sessions = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (int slot : userSlots(user)) {
+                long expiresAt = expiresAt(slot);
+                if (expiresAt <= now) {
+                    release(slot);
+                } else {
+                    sessions.add(new StoredSession(sessionId(slot), expiresAt, readMeta(slot)));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return sessions;
+    }
+
+    @Override
+    public Map<String, Object> remove(String userId, String sessionId) {
+        long user;
+        UUID sid;
+        try {
+            user = Long.parseLong(userId);
+            sid = UUID.fromString(sessionId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        lock.writeLock().lock();
+        try {
+            int slot = findSession(user, sid.getMostSignificantBits(), sid.getLeastSignificantBits());
+            if (slot == NONE) {
+                return null;
+            }
+            Map<String, Object> meta = readMeta(slot);
+            release(slot);
+            return meta;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> removeAll(Collection<String> userIds) {
+        List<Map<String, Object>> metas = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (String userId : userIds) {
+                for (int slot : userSlots(Long.parseLong(userId))) {
+                    metas.add(readMeta(slot));
+                    release(slot);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return metas;
+    }
+
+    @Override
+    public void refresh(Collection<String> sessions, long now, long ttlMillis) {
+        lock.writeLock().lock();
+        try {
+            for (String session : sessions) {
+                int separator = session.indexOf(':');
+                UUID sid = UUID.fromString(session.substring(separator + 1));
+                int slot = findSession(Long.parseLong(session.substring(0, separator)),
+                        sid.getMostSignificantBits(), sid.getLeastSignificantBits());
+                if (slot != NONE && expiresAt(slot) > now) {
+                    slots.putLong(offset(slot) + EXPIRES_AT, now + ttlMillis);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private MappedByteBuffer map(Path path, int size) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean existing = channel.size() > 0;
+            if (channel.size() > size) {
+                channel.truncate(size);
+            }
+            // 映射关闭通道后仍然有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (existing && (buffer.getInt(HEADER_MAGIC) != MAGIC || buffer.getInt(HEADER_CAPACITY) != capacity
+                    || buffer.getInt(HEADER_SLOT_SIZE) != slotSize)) {
+                log.warn("会话持久化文件{}与当前的容量或槽大小不一致, 丢弃其中的会话", path);
+                for (int slot = 0; slot < capacity; slot++) {
+                    buffer.putInt(HEADER_SIZE + slot * slotSize + STATE, FREE);
+                }
+            }
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开会话持久化文件失败: " + path, e);
+        }
+    }
+
+    /**
+     * 扫描全部槽, 未过期的会话重新加入索引, 其余的槽串成空闲链表(序号小的在前)
+     */
+    private void rebuild() {
+        long now = System.currentTimeMillis();
+        for (int slot = capacity - 1; slot >= 0; slot--) {
+            int base = offset(slot);
+            if (slots.getInt(base + STATE) == USED && slots.getLong(base + EXPIRES_AT) > now) {
+                index(slot);
+            } else {
+                slots.putInt(base + STATE, FREE).putInt(base + NEXT, freeHead);
+                freeHead = slot;
+            }
+        }
+    }
+
+    private int sweep(long now) {
+        int removed = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (slots.getInt(offset(slot) + STATE) == USED && expiresAt(slot) <= now) {
+                release(slot);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 设备信息放不下时去掉User-Agent, 仍然放不下说明槽大小配置过小
+     */
+    private byte[] encodeMeta(Map<String, Object> meta, int sessionLength) {
+        byte[] bytes = JSON.toJSONString(meta).getBytes(StandardCharsets.UTF_8);
+        if (PAYLOAD + sessionLength + bytes.length > slotSize && meta.containsKey("device")) {
+            Map<String, Object> trimmed = new LinkedHashMap<>(meta);
+            trimmed.remove("device");
+            bytes = JSON.toJSONString(trimmed).getBytes(StandardCharsets.UTF_8);
+        }
+        if (PAYLOAD + sessionLength + bytes.length > slotSize) {
+            throw new IllegalStateException("会话数据超出进程内存储的槽大小: " + slotSize);
+        }
+        return bytes;
+    }
+
+    private Map<String, Object> readMeta(int slot) {
+        int base = offset(slot);
+        int length = slots.getShort(base + META_LENGTH) & 0xFFFF;
+        if (length == 0) {
+            return Map.of();
+        }
+        byte[] bytes = new byte[length];
+        slots.get(base + PAYLOAD + (slots.getShort(base + SESSION_LENGTH) & 0xFFFF), bytes);
+        return JSON.parseObject(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private String sessionId(int slot) {
+        int base = offset(slot);
+        return new UUID(slots.getLong(base + SID_HIGH), slots.getLong(base + SID_LOW)).toString();
+    }
+
+    private long expiresAt(int slot) {
+        return slots.getLong(offset(slot) + EXPIRES_AT);
+    }
+
+    private int offset(int slot) {
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    /**
+     * 把已写入的槽加入会话索引, 并挂到该用户会话链表的头部
+     */
+    private void index(int slot) {
+        int base = offset(slot);
+        long user = slots.getLong(base + USER_ID);
+        insert(sessionIndex, sessionHash(user, slots.getLong(base + SID_HIGH), slots.getLong(base + SID_LOW)), slot);
+        int position = userPosition(user);
+        if (position == NONE) {
+            slots.putInt(base + NEXT, NONE);
+            insert(userIndex, userHash(user), slot);
+        } else {
+            slots.putInt(base + NEXT, userIndex.getInt(position << 2) - 1);
+            userIndex.putInt(position << 2, slot + 1);
+        }
+        used++;
+    }
+
+    /**
+     * 从两张索引和用户的会话链表中移除, 放回空闲链表
+     */
+    private void release(int slot) {
+        int base = offset(slot);
+        long user = slots.getLong(base + USER_ID);
+        long high = slots.getLong(base + SID_HIGH);
+        long low = slots.getLong(base + SID_LOW);
+        remove(sessionIndex, sessionPosition(user, high, low), false);
+        int position = userPosition(user);
+        int head = userIndex.getInt(position << 2) - 1;
+        int next = slots.getInt(base + NEXT);
+        if (head == slot) {
+            if (next == NONE) {
+                remove(userIndex, position, true);
+            } else {
+                userIndex.putInt(position << 2, next + 1);
+            }
+        } else {
+            int previous = head;
+            while (slots.getInt(offset(previous) + NEXT) != slot) {
+                previous = slots.getInt(offset(previous) + NEXT);
+            }
+            slots.putInt(offset(previous) + NEXT, next);
+        }
+        slots.putInt(base + STATE, FREE).putInt(base + NEXT, freeHead);
+        freeHead = slot;
+        used--;
+    }
+
+    private int[] userSlots(long user) {
+        int position = userPosition(user);
+        if (position == NONE) {
+            return new int[0];
+        }
+        int[] result = new int[8];
+        int count = 0;
+        for (int slot = userIndex.getInt(position << 2) - 1; slot != NONE; slot = slots.getInt(offset(slot) + NEXT)) {
+            if (count == result.length) {
+                result = Arrays.copyOf(result, count * 2);
+            }
+            result[count++] = slot;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int findSession(long user, long high, long low) {
+        int position = sessionPosition(user, high, low);
+        return position == NONE ? NONE : sessionIndex.getInt(position << 2) - 1;
+    }
+
+    private int sessionPosition(long user, long high, long low) {
+        for (int i = sessionHash(user, high, low) & indexMask; ; i = (i + 1) & indexMask) {
+            int entry = sessionIndex.getInt(i << 2);
+            if (entry == 0) {
+                return NONE;
+            }
+            int base = offset(entry - 1);
+            if (slots.getLong(base + SID_LOW) == low && slots.getLong(base + SID_HIGH) == high
+                    && slots.getLong(base + USER_ID) == user) {
+                return i;
+            }
+        }
+    }
+
+    private int userPosition(long user) {
+        for (int i = userHash(user) & indexMask; ; i = (i + 1) & indexMask) {
+            int entry = userIndex.getInt(i << 2);
+            if (entry == 0) {
+                return NONE;
+            }
+            if (slots.getLong(offset(entry - 1) + USER_ID) == user) {
+                return i;
+            }
+        }
+    }
+
+    private void insert(ByteBuffer index, int hash, int slot) {
+        int i = hash & indexMask;
+        while (index.getInt(i << 2) != 0) {
+            i = (i + 1) & indexMask;
+        }
+        index.putInt(i << 2, slot + 1);
+    }
+
+    /**
+     * 线性探测表的删除: 把后面探测序列上的条目前移填补空位, 不使用删除标记
+     */
+    private void remove(ByteBuffer index, int position, boolean byUser) {
+        int hole = position;
+        for (int i = (position + 1) & indexMask; ; i = (i + 1) & indexMask) {
+            int entry = index.getInt(i << 2);
+            if (entry == 0) {
+                break;
+            }
+            int base = offset(entry - 1);
+            int home = (byUser ? userHash(slots.getLong(base + USER_ID))
+                    : sessionHash(slots.getLong(base + USER_ID), slots.getLong(base + SID_HIGH), slots.getLong(base + SID_LOW)))
+                    & indexMask;
+            // 理想位置在(hole, i]之间的条目不能前移到hole
+            boolean stays = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+            if (!stays) {
+                index.putInt(hole << 2, entry);
+                hole = i;
+            }
+        }
+        index.putInt(hole << 2, 0);
+    }
+
+    private static int sessionHash(long user, long high, long low) {
+        return mix(user * 0x9E3779B97F4A7C15L ^ high ^ Long.rotateLeft(low, 31));
+    }
+
+    private static int userHash(long user) {
+        return mix(user);
+    }
+
+    private static int mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,174 @@
+package com.was.session;
+
+import com.alibaba.fastjson.JSON;
+import com.was.pojo.entity.LoginUser;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * redis会话存储
+ * 每个用户的全部会话保存在一个hash(login:<userId>)中, 字段 <sid> 为会话数据, <sid>:exp 为过期时间, <sid>:meta 为设备信息;
+ * 读取单个会话用一次HMGET, 并发的读取由SessionLookupBatcher合并成pipeline; 创建、列出、删除都只需要一次往返,
+ * 批量删除和批量续期合并成一次pipeline
+ */
+public class RedisSessionStore implements SessionStore {
+
+    private static final String KEY_PREFIX = "login:";
+    private static final String EXPIRES_SUFFIX = ":exp";
+    private static final String META_SUFFIX = ":meta";
+
+    private static final byte[] CREATE_SCRIPT = readScript("lua/session_create.lua");
+    private static final byte[] REVOKE_ALL_SCRIPT = readScript("lua/session_revoke_all.lua");
+    private static final byte[] REFRESH_SCRIPT = readScript("lua/session_refresh.lua");
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final SessionLookupBatcher sessionLookupBatcher;
+
+    public RedisSessionStore(RedisTemplate<String, Object> redisTemplate, SessionLookupBatcher sessionLookupBatcher) {
+        this.redisTemplate = redisTemplate;
+        this.sessionLookupBatcher = sessionLookupBatcher;
+    }
+
+    static String key(String userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    static String expiresField(String sessionId) {
+        return sessionId + EXPIRES_SUFFIX;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, Object>> create(String userId, String sessionId, LoginUser loginUser,
+                                                   Map<String, Object> meta, long now, long ttlMillis, int maxSessions) {
+        byte[] session = ((RedisSerializer<Object>) redisTemplate.getHashValueSerializer()).serialize(loginUser);
+        List<byte[]> evicted = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.scriptingCommands().eval(CREATE_SCRIPT, ReturnType.MULTI, 1,
+                        bytes(key(userId)), bytes(sessionId), session, bytes(JSON.toJSONString(meta)),
+                        bytes(String.valueOf(now)), bytes(String.valueOf(ttlMillis)), bytes(String.valueOf(maxSessions))));
+        if (evicted == null || evicted.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Map<String, Object>> sessions = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < evicted.size(); i += 2) {
+            sessions.put(new String(evicted.get(i), StandardCharsets.UTF_8), evicted.get(i + 1).length > 0
+                    ? JSON.parseObject(new String(evicted.get(i + 1), StandardCharsets.UTF_8)) : Map.of());
+        }
+        return sessions;
+    }
+
+    @Override
+    public LoginUser get(String userId, String sessionId) {
+        return sessionLookupBatcher.lookup(userId, sessionId);
+    }
+
+    @Override
+    public List<StoredSession> list(String userId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(key(userId));
+        long now = System.currentTimeMillis();
+        List<StoredSession> sessions = new ArrayList<>();
+        List<Object> expired = new ArrayList<>();
+        for (Object field : entries.keySet()) {
+            String sessionId = field.toString();
+            if (sessionId.indexOf(':') >= 0) {
+                continue;
+            }
+            if (!(entries.get(expiresField(sessionId)) instanceof Number expiresAt) || expiresAt.longValue() <= now) {
+                expired.add(sessionId);
+                expired.add(expiresField(sessionId));
+                expired.add(sessionId + META_SUFFIX);
+                continue;
+            }
+            sessions.add(new StoredSession(sessionId, expiresAt.longValue(), meta(entries.get(sessionId + META_SUFFIX))));
+        }
+        if (!expired.isEmpty()) {
+            redisTemplate.opsForHash().delete(key(userId), expired.toArray());
+        }
+        return sessions;
+    }
+
+    /**
+     * 读取设备信息和删除在同一次pipeline中完成
+     */
+    @Override
+    public Map<String, Object> remove(String userId, String sessionId) {
+        String key = key(userId);
+        String metaField = sessionId + META_SUFFIX;
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.hashCommands().hGet(bytes(key), bytes(metaField));
+            connection.hashCommands().hDel(bytes(key), bytes(sessionId), bytes(expiresField(sessionId)), bytes(metaField));
+            return null;
+        });
+        if (!(results.get(1) instanceof Number deleted) || deleted.longValue() == 0) {
+            return null;
+        }
+        return meta(results.get(0));
+    }
+
+    /**
+     * 每个用户一次脚本调用, 合并成一次pipeline
+     */
+    @Override
+    public List<Map<String, Object>> removeAll(Collection<String> userIds) {
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String userId : userIds) {
+                connection.scriptingCommands().eval(REVOKE_ALL_SCRIPT, ReturnType.MULTI, 1, bytes(key(userId)));
+            }
+            return null;
+        });
+        List<Map<String, Object>> metas = new ArrayList<>();
+        for (Object result : results) {
+            if (result instanceof List<?> values) {
+                values.forEach(value -> metas.add(meta(value)));
+            }
+        }
+        return metas;
+    }
+
+    /**
+     * 每个会话一次续期脚本调用, 合并成一次pipeline
+     */
+    @Override
+    public void refresh(Collection<String> sessions, long now, long ttlMillis) {
+        byte[] nowBytes = bytes(String.valueOf(now));
+        byte[] ttlBytes = bytes(String.valueOf(ttlMillis));
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String session : sessions) {
+                int separator = session.indexOf(':');
+                connection.scriptingCommands().eval(REFRESH_SCRIPT, ReturnType.INTEGER, 1,
+                        bytes(key(session.substring(0, separator))), bytes(session.substring(separator + 1)), nowBytes, ttlBytes);
+            }
+            return null;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> meta(Object value) {
+        return value instanceof Map<?, ?> map ? (Map<String, Object>) map : Map.of();
+    }
+
+    static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] readScript(String path) {
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取脚本失败: " + path, e);
+        }
+    }
+}
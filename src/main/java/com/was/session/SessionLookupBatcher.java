@@ -0,0 +1,234 @@
+package com.was.session;
+
+import com.was.pojo.SessionProperties;
+import com.was.pojo.entity.LoginUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 会话查询合并器
+ * 本地缓存未命中时的会话查询先进入队列, 由少数几个执行线程把一段时间内(或达到数量上限)的查询合并成一次pipeline,
+ * 在同一个连接上一次写出全部HMGET、一次读回全部结果, 再分发给等待的请求线程;
+ * 同一会话的并发查询只查询一次. 会话数据分散在各用户的hash中, 无法用一条MGET读取, pipeline是等价的做法
+ */
+@Component
+@Slf4j
+public class SessionLookupBatcher {
+
+    @Autowired
+    private SessionProperties sessionProperties;
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final LinkedBlockingQueue<Lookup> queue = new LinkedBlockingQueue<>();
+    // userId:sid -> 排队或执行中的查询
+    private final ConcurrentHashMap<String, Lookup> pending = new ConcurrentHashMap<>();
+    private final List<Thread> flushers = new ArrayList<>();
+    private volatile boolean running;
+    private DistributionSummary batchSize;
+    private Counter deduplicated;
+
+    private record Lookup(String key, String userId, String sessionId, long enqueuedAt,
+                          CompletableFuture<LoginUser> result) {
+    }
+
+    @PostConstruct
+    public void init() {
+        SessionProperties.Batch config = sessionProperties.getBatch();
+        if (!config.isEnabled()) {
+            log.info("会话查询合并已关闭");
+            return;
+        }
+        batchSize = DistributionSummary.builder("was.session.batch.size")
+                .description("每次pipeline合并的会话查询数")
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue((double) Math.max(1, config.getMaxSize()))
+                .register(meterRegistry);
+        deduplicated = Counter.builder("was.session.batch.deduplicated")
+                .description("与排队中的相同会话查询合并的次数")
+                .register(meterRegistry);
+        running = true;
+        for (int i = 0; i < Math.max(1, config.getFlushers()); i++) {
+            flushers.add(Thread.ofPlatform().daemon().name("session-batch-" + i).start(this::flushLoop));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        flushers.forEach(Thread::interrupt);
+        Lookup lookup;
+        while ((lookup = queue.poll()) != null) {
+            fail(lookup, new IllegalStateException("应用正在关闭"));
+        }
+    }
+
+    /**
+     * 查询会话, 阻塞到所在批次执行完成
+     *
+     * @param userId    用户id
+     * @param sessionId 会话id
+     * @return 登录用户, 会话不存在或已过期时返回null
+     */
+    public LoginUser lookup(String userId, String sessionId) {
+        if (!running) {
+            return toLoginUser(redisTemplate.opsForHash()
+                    .multiGet(RedisSessionStore.key(userId), List.of(sessionId, RedisSessionStore.expiresField(sessionId))));
+        }
+        String key = userId + ":" + sessionId;
+        Lookup lookup = pending.get(key);
+        if (lookup == null) {
+            Lookup created = new Lookup(key, userId, sessionId, System.nanoTime(), new CompletableFuture<>());
+            lookup = pending.putIfAbsent(key, created);
+            if (lookup == null) {
+                lookup = created;
+                queue.add(created);
+            } else {
+                deduplicated.increment();
+            }
+        } else {
+            // 同一会话的查询正在排队或执行, 共享它的结果
+            deduplicated.increment();
+        }
+        try {
+            return lookup.result().get(sessionProperties.getBatch().getTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("会话查询被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("会话查询失败", e.getCause());
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("会话查询超时");
+        }
+    }
+
+    private void flushLoop() {
+        SessionProperties.Batch config = sessionProperties.getBatch();
+        int maxSize = Math.max(1, config.getMaxSize());
+        long maxWait = config.getMaxWait().toNanos();
+        List<Lookup> batch = new ArrayList<>(maxSize);
+        while (running) {
+            try {
+                Lookup first = queue.take();
+                batch.add(first);
+                queue.drainTo(batch, maxSize - batch.size());
+                // 等待时间从第一个查询入队时算起, 在队列中已经等够的查询不再额外等待
+                long deadline = first.enqueuedAt() + maxWait;
+                while (batch.size() < maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Lookup next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxSize - batch.size());
+                }
+                execute(batch);
+            } catch (InterruptedException e) {
+                batch.forEach(lookup -> fail(lookup, new IllegalStateException("应用正在关闭")));
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                batch.forEach(lookup -> fail(lookup, e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void execute(List<Lookup> batch) {
+        batchSize.record(batch.size());
+        List<Object> results;
+        try {
+            // 不反序列化, 按原始字节取回后逐个处理
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Lookup lookup : batch) {
+                    connection.hashCommands().hMGet(RedisSessionStore.bytes(RedisSessionStore.key(lookup.userId())),
+                            RedisSessionStore.bytes(lookup.sessionId()),
+                            RedisSessionStore.bytes(RedisSessionStore.expiresField(lookup.sessionId())));
+                }
+                return null;
+            }, null);
+        } catch (RedisPipelineException e) {
+            // pipeline中有命令出错时拿不到逐条结果, 这一批改为逐个查询, 出错的只影响它自己
+            log.warn("会话查询pipeline失败, 本批{}个查询改为逐个执行: {}", batch.size(), e.getMessage());
+            batch.forEach(this::executeSingle);
+            return;
+        }
+        RedisSerializer<Object> serializer = (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+        for (int i = 0; i < batch.size(); i++) {
+            Lookup lookup = batch.get(i);
+            if (i < results.size() && results.get(i) instanceof List<?> values && values.size() == 2) {
+                try {
+                    complete(lookup, toLoginUser(Arrays.asList(
+                            serializer.deserialize((byte[]) values.get(0)),
+                            serializer.deserialize((byte[]) values.get(1)))));
+                } catch (RuntimeException e) {
+                    fail(lookup, e);
+                }
+            } else {
+                fail(lookup, new IllegalStateException("会话查询没有返回结果"));
+            }
+        }
+    }
+
+    private void executeSingle(Lookup lookup) {
+        try {
+            complete(lookup, toLoginUser(redisTemplate.opsForHash().multiGet(RedisSessionStore.key(lookup.userId()),
+                    List.of(lookup.sessionId(), RedisSessionStore.expiresField(lookup.sessionId())))));
+        } catch (RuntimeException e) {
+            fail(lookup, e);
+        }
+    }
+
+    /**
+     * @param values 会话数据和过期时间
+     * @return 未过期的登录用户, 否则为null
+     */
+    static LoginUser toLoginUser(List<Object> values) {
+        if (values.get(0) instanceof LoginUser loginUser
+                && values.get(1) instanceof Number expiresAt
+                && expiresAt.longValue() > System.currentTimeMillis()) {
+            return loginUser;
+        }
+        return null;
+    }
+
+    private void complete(Lookup lookup, LoginUser loginUser) {
+        // 先移除再完成, 之后到达的查询重新读取redis
+        pending.remove(lookup.key(), lookup);
+        lookup.result().complete(loginUser);
+    }
+
+    private void fail(Lookup lookup, Exception e) {
+        pending.remove(lookup.key(), lookup);
+        lookup.result().completeExceptionally(e);
+    }
+}
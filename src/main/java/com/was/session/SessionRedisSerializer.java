@@ -0,0 +1,167 @@
+package com.was.session;
+
+import com.alibaba.fastjson.support.spring.GenericFastJsonRedisSerializer;
+import com.was.pojo.entity.LoginUser;
+import com.was.pojo.entity.User;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 会话值的redis序列化器
+ * LoginUser使用带版本号的紧凑二进制格式, 只保存认证需要的字段(id、用户名、角色), 不保存密码哈希等信息
+ * 其他类型以及升级前写入的fastjson数据仍交给fastjson处理, 保证滚动发布期间新旧数据都能读取
+ *
+ * 格式(v1): [魔数 0xC7][版本 1][id varint][用户名长度 varint][用户名 UTF-8]([角色数 varint]([角色长度 varint][角色 UTF-8])*)
+ * 角色部分是后来追加的, 没有角色时不写; 旧版本读取时忽略末尾的角色部分, 所以不需要升级版本号
+ */
+public class SessionRedisSerializer implements RedisSerializer<Object> {
+
+    // 魔数不会出现在JSON文本的开头, 用来区分二进制会话和fastjson数据
+    static final byte MAGIC = (byte) 0xC7;
+    static final byte VERSION_1 = 1;
+
+    private final GenericFastJsonRedisSerializer fallback;
+
+    public SessionRedisSerializer(GenericFastJsonRedisSerializer fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (!(value instanceof LoginUser loginUser)) {
+            return fallback.serialize(value);
+        }
+        User user = loginUser.getUser();
+        byte[] userName = user.getUserName() == null ? new byte[0] : user.getUserName().getBytes(StandardCharsets.UTF_8);
+        long id = user.getId() == null ? 0 : user.getId();
+        List<String> roleList = loginUser.getRoles() == null ? List.of() : loginUser.getRoles();
+        byte[][] roles = new byte[roleList.size()][];
+        int size = 2 + varLongSize(id) + varLongSize(userName.length) + userName.length;
+        if (roles.length > 0) {
+            size += varLongSize(roles.length);
+            for (int i = 0; i < roles.length; i++) {
+                roles[i] = roleList.get(i).getBytes(StandardCharsets.UTF_8);
+                size += varLongSize(roles[i].length) + roles[i].length;
+            }
+        }
+
+        byte[] bytes = new byte[size];
+        bytes[0] = MAGIC;
+        bytes[1] = VERSION_1;
+        int offset = writeVarLong(bytes, 2, id);
+        offset = writeBytes(bytes, offset, userName);
+        if (roles.length > 0) {
+            offset = writeVarLong(bytes, offset, roles.length);
+            for (byte[] role : roles) {
+                offset = writeBytes(bytes, offset, role);
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            // 旧版本写入的fastjson数据
+            return fallback.deserialize(bytes);
+        }
+        if (bytes.length < 2 || bytes[1] != VERSION_1) {
+            throw new SerializationException("不支持的会话数据版本: " + (bytes.length < 2 ? "?" : bytes[1]));
+        }
+        try {
+            Reader reader = new Reader(bytes, 2);
+            long id = reader.readVarLong();
+            int length = (int) reader.readVarLong();
+            String userName = reader.readString(length);
+            List<String> roles = List.of();
+            if (reader.hasRemaining()) {
+                int count = (int) reader.readVarLong();
+                if (count < 0 || count > bytes.length) {
+                    throw new SerializationException("会话数据已损坏");
+                }
+                roles = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    roles.add(reader.readString((int) reader.readVarLong()));
+                }
+            }
+            return new LoginUser(User.builder()
+                    .id(id)
+                    .userName(userName)
+                    .build(), roles);
+        } catch (IndexOutOfBoundsException e) {
+            throw new SerializationException("会话数据已损坏", e);
+        }
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarLong(byte[] bytes, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int writeBytes(byte[] bytes, int offset, byte[] value) {
+        offset = writeVarLong(bytes, offset, value.length);
+        System.arraycopy(value, 0, bytes, offset, value.length);
+        return offset + value.length;
+    }
+
+    /**
+     * 顺序读取二进制数据
+     */
+    private static final class Reader {
+        private final byte[] bytes;
+        private int offset;
+
+        private Reader(byte[] bytes, int offset) {
+            this.bytes = bytes;
+            this.offset = offset;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) {
+                    throw new SerializationException("会话数据已损坏");
+                }
+                b = bytes[offset++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        private boolean hasRemaining() {
+            return offset < bytes.length;
+        }
+
+        private String readString(int length) {
+            if (length < 0 || length > bytes.length - offset) {
+                throw new SerializationException("会话数据已损坏");
+            }
+            String value = new String(bytes, offset, length, StandardCharsets.UTF_8);
+            offset += length;
+            return value;
+        }
+    }
+}
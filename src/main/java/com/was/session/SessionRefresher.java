@@ -0,0 +1,92 @@
+package com.was.session;
+
+import com.was.pojo.JwtProperties;
+import com.was.pojo.SessionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 会话过期时间管理
+ * 登录时按统一的ttl写入会话; 开启滑动过期后, 过滤器每次认证成功都会登记一次续期,
+ * 同一个会话在refreshInterval内只登记一次, 登记的会话由定时任务批量提交给会话存储续期(redis存储合并成一次pipeline)
+ */
+@Component
+@Slf4j
+public class SessionRefresher {
+
+    @Autowired
+    private SessionProperties sessionProperties;
+    @Autowired
+    private JwtProperties jwtProperties;
+    @Autowired
+    private SessionStore sessionStore;
+
+    // userId:sid -> 最近一次登记续期的时间
+    private final Map<String, Long> lastRefreshed = new ConcurrentHashMap<>();
+    // 等待批量续期的userId:sid
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @return 会话在redis中的过期时间
+     */
+    public Duration ttl() {
+        Duration ttl = sessionProperties.getTtl();
+        return ttl != null ? ttl : Duration.ofMillis(jwtProperties.getUserTtl());
+    }
+
+    /**
+     * 登记一次会话续期, 同一个会话在续期间隔内重复登记会被忽略
+     *
+     * @param userId    用户id
+     * @param sessionId 会话id
+     */
+    public void touch(String userId, String sessionId) {
+        SessionProperties.Sliding sliding = sessionProperties.getSliding();
+        if (!sliding.isEnabled()) {
+            return;
+        }
+        String session = userId + ":" + sessionId;
+        long now = System.currentTimeMillis();
+        Long last = lastRefreshed.get(session);
+        if (last != null && now - last < sliding.getRefreshInterval().toMillis()) {
+            return;
+        }
+        lastRefreshed.put(session, now);
+        pending.add(session);
+    }
+
+    /**
+     * 批量提交续期, 只对仍然存在的会话生效, 不会复活已删除的会话
+     */
+    @Scheduled(fixedDelayString = "#{@sessionProperties.sliding.flushInterval.toMillis()}")
+    public void flush() {
+        if (!sessionProperties.getSliding().isEnabled()) {
+            return;
+        }
+        long expireBefore = System.currentTimeMillis() - sessionProperties.getSliding().getRefreshInterval().toMillis();
+        lastRefreshed.values().removeIf(last -> last < expireBefore);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<String> sessions = new ArrayList<>(pending.size());
+        for (String session : pending) {
+            pending.remove(session);
+            sessions.add(session);
+        }
+        try {
+            sessionStore.refresh(sessions, System.currentTimeMillis(), ttl().toMillis());
+        } catch (Exception e) {
+            log.warn("会话批量续期失败, 共{}个: {}", sessions.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.was.session;
+
+import com.was.pojo.SessionProperties;
+import com.was.pojo.entity.LoginUser;
+import com.was.pojo.vo.SessionVO;
+import com.was.security.TokenDenylist;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多设备会话注册表
+ * 每次登录创建一个会话, 同一用户在不同设备上的会话互不影响, 会话数据的读写由SessionStore完成;
+ * 这里负责记录设备信息, 以及会话被注销或淘汰时失效各节点的近端缓存、吊销无状态模式签发的令牌
+ */
+@Component
+@Slf4j
+public class SessionRegistry {
+
+    // 设备信息最多保存的User-Agent长度
+    private static final int MAX_DEVICE_LENGTH = 256;
+
+    @Autowired
+    private SessionProperties sessionProperties;
+    @Autowired
+    private SessionStore sessionStore;
+    @Autowired
+    private LoginUserNearCache loginUserNearCache;
+    @Autowired
+    private SessionRefresher sessionRefresher;
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    /**
+     * 登录时创建会话, 同一用户在其他设备上的会话不受影响
+     *
+     * @param userId         用户id
+     * @param sessionId      会话id, 同时写入令牌的sid声明
+     * @param loginUser      登录用户
+     * @param request        登录请求, 用于记录设备信息
+     * @param jti            无状态模式签发的令牌标识, 注销全部会话时据此吊销令牌, 否则为null
+     * @param tokenExpiresAt 令牌过期时间(毫秒)
+     */
+    public void create(String userId, String sessionId, LoginUser loginUser, HttpServletRequest request,
+                       String jti, long tokenExpiresAt) {
+        long now = System.currentTimeMillis();
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("device", device(request));
+        meta.put("ip", request.getRemoteAddr());
+        meta.put("createdAt", now);
+        if (jti != null) {
+            meta.put("jti", jti);
+            meta.put("tokenExp", tokenExpiresAt);
+        }
+        Map<String, Map<String, Object>> evicted = sessionStore.create(userId, sessionId, loginUser, meta, now,
+                sessionRefresher.ttl().toMillis(), sessionProperties.getMaxPerUser());
+        if (evicted.isEmpty()) {
+            return;
+        }
+        // 超出上限被淘汰的会话: 失效各节点的近端缓存, 无状态令牌不经过会话表, 需要吊销
+        Map<String, Long> tokens = new HashMap<>();
+        evicted.forEach((evictedId, evictedMeta) -> {
+            loginUserNearCache.invalidate(userId, evictedId);
+            collectToken(evictedMeta, tokens);
+        });
+        if (!tokens.isEmpty()) {
+            tokenDenylist.revokeAll(tokens);
+        }
+        log.debug("用户{}的会话数超出上限, 淘汰了{}个会话", userId, evicted.size());
+    }
+
+    /**
+     * 列出用户的全部有效会话, 顺带删除已过期的会话
+     *
+     * @param userId           用户id
+     * @param currentSessionId 当前请求使用的会话id
+     * @return 按创建时间倒序排列的会话
+     */
+    public List<SessionVO> list(String userId, String currentSessionId) {
+        List<SessionVO> sessions = new ArrayList<>();
+        for (SessionStore.StoredSession session : sessionStore.list(userId)) {
+            Map<String, Object> meta = session.meta();
+            sessions.add(SessionVO.builder()
+                    .sessionId(session.sessionId())
+                    .device((String) meta.get("device"))
+                    .ip((String) meta.get("ip"))
+                    .createTime(meta.get("createdAt") instanceof Number createdAt ? toDateTime(createdAt.longValue()) : null)
+                    .expireTime(toDateTime(session.expiresAt()))
+                    .current(session.sessionId().equals(currentSessionId))
+                    .build());
+        }
+        sessions.sort(Comparator.comparing(SessionVO::getCreateTime, Comparator.nullsLast(Comparator.reverseOrder())));
+        return sessions;
+    }
+
+    /**
+     * 注销单个会话
+     *
+     * @param userId    用户id
+     * @param sessionId 会话id
+     * @return 会话是否存在
+     */
+    public boolean revoke(String userId, String sessionId) {
+        Map<String, Object> meta = sessionStore.remove(userId, sessionId);
+        loginUserNearCache.invalidate(userId, sessionId);
+        Map<String, Long> tokens = new HashMap<>();
+        collectToken(meta, tokens);
+        if (!tokens.isEmpty()) {
+            tokenDenylist.revokeAll(tokens);
+        }
+        return meta != null;
+    }
+
+    /**
+     * 注销这些用户的全部会话, 无状态模式签发的令牌一并吊销
+     *
+     * @param userIds 用户id
+     * @return 注销的会话数
+     */
+    public int revokeAll(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        List<Map<String, Object>> metas = sessionStore.removeAll(userIds);
+        loginUserNearCache.invalidateUsers(userIds);
+        Map<String, Long> tokens = new HashMap<>();
+        metas.forEach(meta -> collectToken(meta, tokens));
+        if (!tokens.isEmpty()) {
+            tokenDenylist.revokeAll(tokens);
+        }
+        log.info("注销{}个用户的全部会话, 共{}个会话, 吊销{}个无状态令牌", userIds.size(), metas.size(), tokens.size());
+        return metas.size();
+    }
+
+    private static void collectToken(Object meta, Map<String, Long> tokens) {
+        if (meta instanceof Map<?, ?> map && map.get("jti") instanceof String jti
+                && map.get("tokenExp") instanceof Number tokenExp) {
+            tokens.put(jti, tokenExp.longValue());
+        }
+    }
+
+    private static String device(HttpServletRequest request) {
+        String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        if (userAgent == null) {
+            return null;
+        }
+        return userAgent.length() > MAX_DEVICE_LENGTH ? userAgent.substring(0, MAX_DEVICE_LENGTH) : userAgent;
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,80 @@
+package com.was.session;
+
+import com.was.pojo.entity.LoginUser;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 会话存储
+ * 保存每个用户的多个会话(登录用户、过期时间、设备信息), 只负责读写;
+ * 设备信息的内容、无状态令牌吊销、近端缓存失效由SessionRegistry处理.
+ * 默认使用redis(RedisSessionStore), 单节点部署可以改用进程内的堆外存储(OffHeapSessionStore), 见was.session.store
+ */
+public interface SessionStore {
+
+    /**
+     * 保存会话, 同时清理该用户已过期的会话, 会话数达到上限时淘汰最早过期的会话
+     *
+     * @param userId      用户id
+     * @param sessionId   会话id
+     * @param loginUser   登录用户
+     * @param meta        设备信息
+     * @param now         当前时间(毫秒)
+     * @param ttlMillis   会话有效期(毫秒)
+     * @param maxSessions 每个用户最多保持的会话数
+     * @return 被淘汰的会话: 会话id -> 设备信息
+     */
+    Map<String, Map<String, Object>> create(String userId, String sessionId, LoginUser loginUser,
+                                            Map<String, Object> meta, long now, long ttlMillis, int maxSessions);
+
+    /**
+     * @param userId    用户id
+     * @param sessionId 会话id
+     * @return 登录用户, 会话不存在或已过期时返回null
+     */
+    LoginUser get(String userId, String sessionId);
+
+    /**
+     * 列出用户的全部有效会话, 顺带删除已过期的会话
+     *
+     * @param userId 用户id
+     * @return 未过期的会话, 顺序不定
+     */
+    List<StoredSession> list(String userId);
+
+    /**
+     * @param userId    用户id
+     * @param sessionId 会话id
+     * @return 被删除会话的设备信息, 会话不存在时返回null
+     */
+    Map<String, Object> remove(String userId, String sessionId);
+
+    /**
+     * 删除这些用户的全部会话
+     *
+     * @param userIds 用户id
+     * @return 被删除会话的设备信息
+     */
+    List<Map<String, Object>> removeAll(Collection<String> userIds);
+
+    /**
+     * 续期, 只对仍然存在的会话生效, 不会复活已删除的会话
+     *
+     * @param sessions  userId:sid
+     * @param now       当前时间(毫秒)
+     * @param ttlMillis 会话有效期(毫秒)
+     */
+    void refresh(Collection<String> sessions, long now, long ttlMillis);
+
+    /**
+     * 存储中的一个会话
+     *
+     * @param sessionId 会话id
+     * @param expiresAt 过期时间(毫秒)
+     * @param meta      设备信息, 没有时为空
+     */
+    record StoredSession(String sessionId, long expiresAt, Map<String, Object> meta) {
+    }
+}
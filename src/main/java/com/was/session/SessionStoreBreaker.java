@@ -0,0 +1,159 @@
+package com.was.session;
+
+import com.was.exception.ServiceBusyException;
+import com.was.pojo.SessionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 会话存储熔断器
+ * 会话查询连续失败(连接失败或超时)达到阈值后熔断, 熔断期间直接抛出ServiceBusyException, 不再占用请求线程等待redis;
+ * 熔断openDuration后放行一个试探请求(半开), 试探成功则恢复, 失败则重新熔断.
+ * 命令出错(如key类型不对)说明redis仍可用, 不计入失败
+ */
+@Component
+@Slf4j
+public class SessionStoreBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Autowired
+    private SessionProperties sessionProperties;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    // 熔断到期时间, 到期后放行一个试探请求
+    private volatile long openUntil;
+    // 本次故障开始熔断的时间, 恢复后清零, GRACE策略据此限制放行时长
+    private volatile long outageStart;
+    private final Map<State, Counter> transitions = new EnumMap<>(State.class);
+    private Counter shortCircuited;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("was.session.breaker.state", state, ref -> ref.get().ordinal())
+                .description("会话存储熔断状态: 0关闭, 1熔断, 2半开")
+                .register(meterRegistry);
+        for (State to : State.values()) {
+            transitions.put(to, Counter.builder("was.session.breaker.transitions")
+                    .description("会话存储熔断状态切换次数")
+                    .tag("to", to.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        shortCircuited = Counter.builder("was.session.breaker.short.circuited")
+                .description("熔断期间未访问redis直接降级的会话查询数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 经过熔断器执行会话查询
+     *
+     * @param call 会话查询
+     * @return 查询结果
+     * @throws ServiceBusyException 熔断期间, 或本次查询因连接失败、超时而失败
+     */
+    public <T> T call(Supplier<T> call) {
+        SessionProperties.Breaker config = sessionProperties.getBreaker();
+        if (!config.isEnabled()) {
+            return call.get();
+        }
+        if (!tryAcquire(config)) {
+            shortCircuited.increment();
+            throw new ServiceBusyException("会话服务暂不可用，请稍后重试", retryAfter());
+        }
+        T result;
+        try {
+            result = call.get();
+        } catch (TransientDataAccessException | DataAccessResourceFailureException e) {
+            onFailure(config);
+            throw new ServiceBusyException("会话服务暂不可用，请稍后重试", retryAfter());
+        } catch (RuntimeException e) {
+            onSuccess();
+            throw e;
+        }
+        onSuccess();
+        return result;
+    }
+
+    public State state() {
+        return state.get();
+    }
+
+    /**
+     * @return 本次故障已熔断的时长, 未熔断时为0
+     */
+    public Duration outageDuration() {
+        long start = outageStart;
+        return start == 0 ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * 熔断中的请求不访问redis; 熔断到期后只有一个请求能切换到半开状态作为试探, 其余请求在试探结束前继续降级
+     */
+    private boolean tryAcquire(SessionProperties.Breaker config) {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && System.nanoTime() - openUntil >= 0) {
+            return transition(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.get() == State.HALF_OPEN && transition(State.HALF_OPEN, State.CLOSED)) {
+            log.info("会话存储已恢复, 熔断持续{}ms", outageDuration().toMillis());
+            outageStart = 0;
+        }
+    }
+
+    private void onFailure(SessionProperties.Breaker config) {
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            openUntil = System.nanoTime() + config.getOpenDuration().toNanos();
+            transition(State.HALF_OPEN, State.OPEN);
+            log.warn("会话存储试探失败, 继续熔断{}ms", config.getOpenDuration().toMillis());
+        } else if (current == State.CLOSED && consecutiveFailures.incrementAndGet() >= config.getFailureThreshold()) {
+            long now = System.nanoTime();
+            openUntil = now + config.getOpenDuration().toNanos();
+            if (transition(State.CLOSED, State.OPEN)) {
+                outageStart = now;
+                log.warn("会话存储连续{}次查询失败, 熔断{}ms", consecutiveFailures.get(), config.getOpenDuration().toMillis());
+            }
+        }
+    }
+
+    private boolean transition(State from, State to) {
+        if (state.compareAndSet(from, to)) {
+            transitions.get(to).increment();
+            return true;
+        }
+        return false;
+    }
+
+    private Duration retryAfter() {
+        long remaining = openUntil - System.nanoTime();
+        return state.get() == State.CLOSED || remaining <= 0
+                ? Duration.ofSeconds(1) : Duration.ofNanos(remaining);
+    }
+}
@@ -0,0 +1,114 @@
+package com.was.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按RFC 4180逐条读取CSV记录
+ * 支持双引号包裹的字段、字段内的""转义以及引号内的换行, 自动跳过开头的BOM
+ * 可以限制单条记录的长度, 超长的记录读到结尾后丢弃并抛出{@link RecordTooLongException}, 之后可以继续读取下一条
+ */
+public class CsvReader {
+
+    private final Reader reader;
+    private final int maxRecordLength;
+    private int pushback = -2;
+    private boolean first = true;
+
+    public CsvReader(Reader reader) {
+        this(reader, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxRecordLength 单条记录的最大字符数(包括分隔符和引号)
+     */
+    public CsvReader(Reader reader, int maxRecordLength) {
+        this.reader = reader;
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    /**
+     * @return 下一条记录的字段列表, 没有更多记录时返回null
+     * @throws RecordTooLongException 这条记录超过了最大长度, 已被跳过
+     */
+    public List<String> next() throws IOException {
+        int c = read();
+        if (first) {
+            first = false;
+            if (c == '\uFEFF') {
+                c = read();
+            }
+        }
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int length = 0;
+        while (true) {
+            // 超长后只继续解析到记录结尾, 不再保存内容
+            if (c != -1 && ++length > maxRecordLength) {
+                field.setLength(0);
+                fields.clear();
+            }
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("CSV引号未闭合");
+                }
+                if (c == '"') {
+                    int n = read();
+                    if (n == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = n;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int n = read();
+                    if (n != '\n') {
+                        pushback = n;
+                    }
+                }
+                if (length > maxRecordLength) {
+                    throw new RecordTooLongException(maxRecordLength);
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * 记录超过最大长度
+     */
+    public static class RecordTooLongException extends IOException {
+        public RecordTooLongException(int maxRecordLength) {
+            super("CSV记录超过最大长度" + maxRecordLength);
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushback != -2) {
+            int c = pushback;
+            pushback = -2;
+            return c;
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,484 @@
+package com.was.utils;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * HS256令牌快速校验器
+ * 只识别JwtCodec签发的令牌格式: 头部固定为{"alg":"HS256"}, 载荷是只包含字符串/整数等简单值的JSON对象
+ * 在原始字符串上直接定位令牌, 复用池化的Mac和缓冲区, 以常量时间比较签名,
+ * 只提取userId、sid和exp, 以及无状态模式令牌中的userName、auth和jti
+ * 无法识别的令牌返回UNSUPPORTED, 由调用方回退到jjwt的完整解析流程
+ */
+public class FastJwtVerifier {
+
+    public enum Status {
+        // 签名正确且未过期
+        VALID,
+        // 签名正确但已过期
+        EXPIRED,
+        // 签名错误
+        BAD_SIGNATURE,
+        // 不是快速路径能处理的格式, 需要回退到jjwt
+        UNSUPPORTED,
+        // 请求中没有令牌
+        ABSENT
+    }
+
+    /**
+     * 校验结果, 非VALID的结果使用共享常量, 不产生额外对象
+     * sessionId是签发令牌时创建的会话; userName、authorities和jti只在无状态模式签发的令牌中存在, 否则为null,
+     * authorities是auth声明的原文, 即逗号分隔的角色编码
+     */
+    public record Verification(Status status, String userId, long expiresAt, String sessionId,
+                               String userName, String authorities, String jti) {
+
+        public static final Verification EXPIRED = new Verification(Status.EXPIRED, null, 0);
+        public static final Verification BAD_SIGNATURE = new Verification(Status.BAD_SIGNATURE, null, 0);
+        public static final Verification UNSUPPORTED = new Verification(Status.UNSUPPORTED, null, 0);
+        public static final Verification ABSENT = new Verification(Status.ABSENT, null, 0);
+
+        public Verification(Status status, String userId, long expiresAt) {
+            this(status, userId, expiresAt, null, null, null, null);
+        }
+
+        public boolean isValid() {
+            return status == Status.VALID;
+        }
+    }
+
+    // JwtCodec签发令牌的头部, 即{"alg":"HS256"}的base64url编码
+    private static final String HS256_HEADER = "eyJhbGciOiJIUzI1NiJ9";
+    // HS256签名长度为32字节, base64url编码后为43个字符
+    private static final int SIGNATURE_LENGTH = 32;
+    private static final int ENCODED_SIGNATURE_LENGTH = 43;
+
+    private static final byte[] USER_ID = "userId".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EXP = "exp".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NBF = "nbf".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SID = "sid".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] USER_NAME = "userName".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AUTH = "auth".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JTI = "jti".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] BASE64URL = new byte[128];
+
+    static {
+        Arrays.fill(BASE64URL, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64URL[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    // 池中最多保留的Mac和缓冲区数量
+    private static final int MAX_POOLED_WORKSPACES = Runtime.getRuntime().availableProcessors() * 4;
+
+    private final SecretKey key;
+    // 不使用ThreadLocal: 虚拟线程每个请求都是新线程, ThreadLocal会在每个请求上重新创建Mac
+    private final BlockingQueue<Workspace> workspaces = new LinkedBlockingQueue<>(MAX_POOLED_WORKSPACES);
+
+    public FastJwtVerifier(SecretKey key) {
+        this.key = key;
+    }
+
+    /**
+     * 校验令牌字符串
+     *
+     * @param token 令牌
+     * @return 校验结果
+     */
+    public Verification verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return Verification.ABSENT;
+        }
+        return verify(token, 0, token.length(), System.currentTimeMillis());
+    }
+
+    /**
+     * 直接在Cookie请求头上定位并校验令牌, 不解析出Cookie数组
+     *
+     * @param cookieHeader Cookie请求头
+     * @param cookieName   令牌所在的cookie名称
+     * @return 校验结果, 请求头为空时返回ABSENT, 没找到令牌或值带引号时返回UNSUPPORTED
+     */
+    public Verification verifyCookie(String cookieHeader, String cookieName) {
+        if (cookieHeader == null) {
+            return Verification.ABSENT;
+        }
+        int length = cookieHeader.length();
+        int nameLength = cookieName.length();
+        int i = 0;
+        while (i < length) {
+            // 跳过分隔符后的空白
+            while (i < length && (cookieHeader.charAt(i) == ' ' || cookieHeader.charAt(i) == '\t')) {
+                i++;
+            }
+            int end = cookieHeader.indexOf(';', i);
+            if (end < 0) {
+                end = length;
+            }
+            if (end - i > nameLength
+                    && cookieHeader.charAt(i + nameLength) == '='
+                    && cookieHeader.regionMatches(i, cookieName, 0, nameLength)) {
+                int valueStart = i + nameLength + 1;
+                int valueEnd = end;
+                while (valueEnd > valueStart && (cookieHeader.charAt(valueEnd - 1) == ' ' || cookieHeader.charAt(valueEnd - 1) == '\t')) {
+                    valueEnd--;
+                }
+                if (valueEnd == valueStart) {
+                    return Verification.ABSENT;
+                }
+                if (cookieHeader.charAt(valueStart) == '"') {
+                    return Verification.UNSUPPORTED;
+                }
+                return verify(cookieHeader, valueStart, valueEnd, System.currentTimeMillis());
+            }
+            i = end + 1;
+        }
+        return Verification.UNSUPPORTED;
+    }
+
+    /**
+     * 校验src中[from, to)范围内的令牌
+     */
+    Verification verify(CharSequence src, int from, int to, long now) {
+        int headerEnd = from + HS256_HEADER.length();
+        if (to - from <= HS256_HEADER.length() + ENCODED_SIGNATURE_LENGTH + 2
+                || src.charAt(headerEnd) != '.') {
+            return Verification.UNSUPPORTED;
+        }
+        for (int i = 0; i < HS256_HEADER.length(); i++) {
+            if (src.charAt(from + i) != HS256_HEADER.charAt(i)) {
+                return Verification.UNSUPPORTED;
+            }
+        }
+        int payloadStart = headerEnd + 1;
+        int signatureStart = to - ENCODED_SIGNATURE_LENGTH;
+        int payloadEnd = signatureStart - 1;
+        if (src.charAt(payloadEnd) != '.' || payloadEnd <= payloadStart) {
+            return Verification.UNSUPPORTED;
+        }
+
+        Workspace ws = workspaces.poll();
+        if (ws == null) {
+            ws = newWorkspace();
+        }
+        try {
+            return verifySignature(ws, src, from, to, payloadStart, payloadEnd, signatureStart, now);
+        } finally {
+            workspaces.offer(ws);
+        }
+    }
+
+    /**
+     * 计算并比较签名, 签名正确时扫描载荷
+     */
+    private Verification verifySignature(Workspace ws, CharSequence src, int from, int to,
+                                         int payloadStart, int payloadEnd, int signatureStart, long now) {
+        // 计算签名: 对 header.payload 的ASCII字节做HMAC
+        int signedLength = payloadEnd - from;
+        byte[] buffer = ws.buffer(signedLength);
+        for (int i = 0; i < signedLength; i++) {
+            char c = src.charAt(from + i);
+            if (c >= 128 || (c != '.' && BASE64URL[c] < 0)) {
+                return Verification.UNSUPPORTED;
+            }
+            buffer[i] = (byte) c;
+        }
+        ws.mac.update(buffer, 0, signedLength);
+        try {
+            ws.mac.doFinal(ws.expected, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("计算HmacSHA256失败", e);
+        }
+
+        if (decode(src, signatureStart, to, ws.signature, 0) != SIGNATURE_LENGTH) {
+            return Verification.UNSUPPORTED;
+        }
+        if (!MessageDigest.isEqual(ws.expected, ws.signature)) {
+            return Verification.BAD_SIGNATURE;
+        }
+
+        // 签名正确, 解码并扫描载荷
+        int payloadLength = decode(src, payloadStart, payloadEnd, buffer, 0);
+        if (payloadLength < 0) {
+            return Verification.UNSUPPORTED;
+        }
+        return scanPayload(buffer, payloadLength, now);
+    }
+
+    /**
+     * 扫描载荷JSON, 只接受由简单值组成的一层对象
+     */
+    private Verification scanPayload(byte[] json, int length, long now) {
+        String userId = null;
+        String sessionId = null;
+        String userName = null;
+        String authorities = null;
+        String jti = null;
+        boolean hasExp = false;
+        long exp = 0;
+        int i = skipWhitespace(json, 0, length);
+        if (i >= length || json[i] != '{') {
+            return Verification.UNSUPPORTED;
+        }
+        i = skipWhitespace(json, i + 1, length);
+        if (i < length && json[i] == '}') {
+            return Verification.UNSUPPORTED;
+        }
+        while (true) {
+            // 键
+            if (i >= length || json[i] != '"') {
+                return Verification.UNSUPPORTED;
+            }
+            int keyStart = i + 1;
+            int keyEnd = endOfString(json, keyStart, length);
+            if (keyEnd < 0) {
+                return Verification.UNSUPPORTED;
+            }
+            i = skipWhitespace(json, keyEnd + 1, length);
+            if (i >= length || json[i] != ':') {
+                return Verification.UNSUPPORTED;
+            }
+            i = skipWhitespace(json, i + 1, length);
+            if (i >= length) {
+                return Verification.UNSUPPORTED;
+            }
+
+            // 值
+            byte first = json[i];
+            int valueStart = i;
+            int valueEnd;
+            boolean isString = false;
+            boolean isInteger = false;
+            if (first == '"') {
+                valueEnd = endOfString(json, i + 1, length);
+                if (valueEnd < 0) {
+                    return Verification.UNSUPPORTED;
+                }
+                valueStart = i + 1;
+                i = valueEnd + 1;
+                isString = true;
+            } else if (first == '-' || (first >= '0' && first <= '9')) {
+                int j = first == '-' ? i + 1 : i;
+                while (j < length && json[j] >= '0' && json[j] <= '9') {
+                    j++;
+                }
+                valueEnd = j;
+                isInteger = valueEnd > (first == '-' ? i + 1 : i);
+                while (j < length && (json[j] == '.' || json[j] == 'e' || json[j] == 'E' || json[j] == '+' || json[j] == '-'
+                        || (json[j] >= '0' && json[j] <= '9'))) {
+                    isInteger = false;
+                    j++;
+                }
+                i = j;
+            } else if (matches(json, i, length, "true") || matches(json, i, length, "null")) {
+                valueEnd = i + 4;
+                i = valueEnd;
+            } else if (matches(json, i, length, "false")) {
+                valueEnd = i + 5;
+                i = valueEnd;
+            } else {
+                // 嵌套对象或数组等复杂结构交给jjwt处理
+                return Verification.UNSUPPORTED;
+            }
+
+            if (equals(json, keyStart, keyEnd, USER_ID)) {
+                if (!isString && !isInteger) {
+                    return Verification.UNSUPPORTED;
+                }
+                userId = new String(json, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+            } else if (equals(json, keyStart, keyEnd, EXP)) {
+                if (!isInteger || valueEnd - valueStart > 18) {
+                    return Verification.UNSUPPORTED;
+                }
+                exp = parseLong(json, valueStart, valueEnd);
+                hasExp = true;
+            } else if (equals(json, keyStart, keyEnd, NBF)) {
+                return Verification.UNSUPPORTED;
+            } else if (equals(json, keyStart, keyEnd, SID)) {
+                if (!isString) {
+                    return Verification.UNSUPPORTED;
+                }
+                sessionId = new String(json, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+            } else if (equals(json, keyStart, keyEnd, USER_NAME)) {
+                if (!isString) {
+                    return Verification.UNSUPPORTED;
+                }
+                userName = new String(json, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+            } else if (equals(json, keyStart, keyEnd, AUTH)) {
+                if (!isString) {
+                    return Verification.UNSUPPORTED;
+                }
+                authorities = new String(json, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+            } else if (equals(json, keyStart, keyEnd, JTI)) {
+                if (!isString) {
+                    return Verification.UNSUPPORTED;
+                }
+                jti = new String(json, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+            }
+
+            i = skipWhitespace(json, i, length);
+            if (i >= length) {
+                return Verification.UNSUPPORTED;
+            }
+            if (json[i] == ',') {
+                i = skipWhitespace(json, i + 1, length);
+            } else if (json[i] == '}') {
+                if (skipWhitespace(json, i + 1, length) != length) {
+                    return Verification.UNSUPPORTED;
+                }
+                break;
+            } else {
+                return Verification.UNSUPPORTED;
+            }
+        }
+
+        if (userId == null) {
+            return Verification.UNSUPPORTED;
+        }
+        if (hasExp) {
+            long expiresAt = exp * 1000;
+            if (now > expiresAt) {
+                return Verification.EXPIRED;
+            }
+            return new Verification(Status.VALID, userId, expiresAt, sessionId, userName, authorities, jti);
+        }
+        return new Verification(Status.VALID, userId, Long.MAX_VALUE, sessionId, userName, authorities, jti);
+    }
+
+    /**
+     * base64url解码, 返回写入的字节数, 遇到非法字符或长度时返回-1
+     */
+    private static int decode(CharSequence src, int from, int to, byte[] out, int offset) {
+        int length = to - from;
+        if (length % 4 == 1) {
+            return -1;
+        }
+        int outLength = length / 4 * 3 + (length % 4 == 0 ? 0 : length % 4 - 1);
+        if (out.length - offset < outLength) {
+            return -1;
+        }
+        int o = offset;
+        int bits = 0;
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            char c = src.charAt(i);
+            int v = c < 128 ? BASE64URL[c] : -1;
+            if (v < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | v;
+            count++;
+            if (count == 4) {
+                out[o++] = (byte) (bits >> 16);
+                out[o++] = (byte) (bits >> 8);
+                out[o++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 2) {
+            out[o++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            out[o++] = (byte) (bits >> 10);
+            out[o++] = (byte) (bits >> 2);
+        }
+        return o - offset;
+    }
+
+    private static int skipWhitespace(byte[] json, int i, int length) {
+        while (i < length && (json[i] == ' ' || json[i] == '\t' || json[i] == '\n' || json[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 返回字符串结束引号的位置, 含转义字符时返回-1交给jjwt处理
+     */
+    private static int endOfString(byte[] json, int i, int length) {
+        while (i < length) {
+            byte b = json[i];
+            if (b == '"') {
+                return i;
+            }
+            if (b == '\\' || (b >= 0 && b < 0x20)) {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] json, int i, int length, String literal) {
+        if (length - i < literal.length()) {
+            return false;
+        }
+        for (int k = 0; k < literal.length(); k++) {
+            if (json[i + k] != literal.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(byte[] json, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int k = 0; k < expected.length; k++) {
+            if (json[start + k] != expected[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseLong(byte[] json, int start, int end) {
+        boolean negative = json[start] == '-';
+        long value = 0;
+        for (int k = negative ? start + 1 : start; k < end; k++) {
+            value = value * 10 + (json[k] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private Workspace newWorkspace() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return new Workspace(mac);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化HmacSHA256失败", e);
+        }
+    }
+
+    /**
+     * 池化复用的Mac和缓冲区, 同一时刻只被一个线程使用
+     */
+    private static final class Workspace {
+        private final Mac mac;
+        private final byte[] expected = new byte[SIGNATURE_LENGTH];
+        private final byte[] signature = new byte[SIGNATURE_LENGTH];
+        private byte[] buffer = new byte[512];
+
+        private Workspace(Mac mac) {
+            this.mac = mac;
+        }
+
+        private byte[] buffer(int size) {
+            if (buffer.length < size) {
+                buffer = new byte[Math.max(size, buffer.length * 2)];
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.was.utils;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * JWT编解码器
+ * 签名密钥和解析器只在创建时构建一次, 之后所有线程共享使用
+ * JwtParser是不可变且线程安全的; JwtBuilder不是线程安全的, 所以每次签发时新建, 但复用已准备好的密钥
+ */
+public class JwtCodec {
+
+    // 与之前JwtUtil中设置的主题保持一致
+    private static final String SUBJECT = "web-auth-system";
+
+    private final SecretKey key;
+    private final JwtParser parser;
+
+    public JwtCodec(String secretKey) {
+        this.key = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
+    }
+
+    /**
+     * 生成jwt
+     * 使用Hs256算法
+     *
+     * @param ttlMillis jwt过期时间(毫秒), 小于等于0表示不过期
+     * @param claims    设置的信息
+     * @return jwt字符串
+     */
+    public String createJWT(long ttlMillis, Map<String, Object> claims) {
+        return createJWT(System.currentTimeMillis(), ttlMillis, claims);
+    }
+
+    /**
+     * 以指定的签发时间生成jwt, 调用方需要知道令牌确切的过期时间时使用
+     *
+     * @param now       签发时间(毫秒)
+     * @param ttlMillis jwt过期时间(毫秒), 小于等于0表示不过期
+     * @param claims    设置的信息
+     * @return jwt字符串
+     */
+    public String createJWT(long now, long ttlMillis, Map<String, Object> claims) {
+        JwtBuilder builder = Jwts.builder();
+
+        // 如果有自定义声明，先设置claims
+        if (claims != null && !claims.isEmpty()) {
+            builder.claims(claims);
+        }
+
+        // 设置标准声明
+        builder
+                .subject(SUBJECT)
+                .issuedAt(new Date(now));
+
+        // 设置过期时间
+        if (ttlMillis > 0) {
+            builder.expiration(new Date(now + ttlMillis));
+        }
+
+        return builder.signWith(key, Jwts.SIG.HS256).compact();
+    }
+
+    /**
+     * 令牌中的exp以秒为单位, 返回按秒截断后的过期时间, 与校验令牌时得到的过期时间一致
+     *
+     * @param now       签发时间(毫秒)
+     * @param ttlMillis jwt过期时间(毫秒)
+     * @return 过期时间(毫秒)
+     */
+    public static long expiresAt(long now, long ttlMillis) {
+        return (now + ttlMillis) / 1000 * 1000;
+    }
+
+    /**
+     * Token解密
+     *
+     * @param token 加密后的token
+     * @return 解密后的信息
+     */
+    public Claims parseJWT(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * @return HS256签名密钥
+     */
+    public SecretKey getKey() {
+        return key;
+    }
+}
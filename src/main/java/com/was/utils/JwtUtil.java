@@ -60,15 +60,25 @@
 package com.was.utils;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.JwtBuilder;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
-import java.util.Date;
+
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JwtUtil {
+
+    // 按密钥缓存的编解码器, 避免每次调用都重新生成密钥和解析器
+    private static final Map<String, JwtCodec> CODECS = new ConcurrentHashMap<>();
+
+    /**
+     * 获取指定密钥对应的编解码器, 同一个密钥只会构建一次
+     *
+     * @param secretKey jwt秘钥
+     * @return 编解码器
+     */
+    public static JwtCodec codecFor(String secretKey) {
+        return CODECS.computeIfAbsent(secretKey, JwtCodec::new);
+    }
+
     /**
      * 生成jwt
      * 使用Hs256算法, 私匙使用固定秘钥
@@ -79,38 +89,7 @@ public class JwtUtil {
      * @return jwt字符串
      */
     public static String createJWT(String secretKey, long ttlMillis, Map<String, Object> claims) {
-        // 生成签名密钥
-        SecretKey key = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
-
-        // 计算过期时间
-        Date exp = null;
-        if (ttlMillis > 0) {
-            long expMillis = System.currentTimeMillis() + ttlMillis;
-            exp = new Date(expMillis);
-        }
-
-        // 构建JWT
-        JwtBuilder builder = Jwts.builder();
-
-        // 如果有自定义声明，先设置claims
-        if (claims != null && !claims.isEmpty()) {
-            builder.claims(claims);
-        }
-
-        // 设置标准声明
-        builder
-                .subject("web-auth-system")  // 设置主题
-                .issuedAt(new Date());       // 设置签发时间
-
-        // 设置过期时间
-        if (exp != null) {
-            builder.expiration(exp);
-        }
-
-        // 设置签名
-        builder.signWith(key, Jwts.SIG.HS256);
-
-        return builder.compact();
+        return codecFor(secretKey).createJWT(ttlMillis, claims);
     }
 
     /**
@@ -121,15 +100,6 @@ public class JwtUtil {
      * @return 解密后的信息
      */
     public static Claims parseJWT(String secretKey, String token) {
-        // 生成签名密钥
-        SecretKey key = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
-
-        // 解析JWT令牌
-        return Jwts.parser()
-                .verifyWith(key)  // 使用新的验证API
-                .build()
-                .parseSignedClaims(token)  // 使用新的解析方法
-                .getPayload();  // 获取载荷
+        return codecFor(secretKey).parseJWT(token);
     }
 }
-
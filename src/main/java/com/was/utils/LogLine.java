@@ -0,0 +1,72 @@
+package com.was.utils;
+
+/**
+ * 拼接一行结构化日志的JSON字段(不含外层花括号, 由logback-spring.xml中的格式补上时间戳和花括号)
+ * 字符串按JSON转义, 防止用户名、路径中的引号和换行伪造日志行; 值为null的字段直接省略
+ */
+public final class LogLine {
+
+    private final StringBuilder builder;
+
+    public LogLine(int capacity) {
+        builder = new StringBuilder(capacity);
+    }
+
+    public LogLine add(String name, String value) {
+        if (value == null) {
+            return this;
+        }
+        name(name);
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        builder.append('"');
+        return this;
+    }
+
+    public LogLine add(String name, long value) {
+        name(name);
+        builder.append(value);
+        return this;
+    }
+
+    public LogLine add(String name, double value) {
+        name(name);
+        builder.append(value);
+        return this;
+    }
+
+    public LogLine add(String name, boolean value) {
+        name(name);
+        builder.append(value);
+        return this;
+    }
+
+    private void name(String name) {
+        if (!builder.isEmpty()) {
+            builder.append(',');
+        }
+        // 字段名都是代码中的常量, 不需要转义
+        builder.append('"').append(name).append("\":");
+    }
+
+    @Override
+    public String toString() {
+        return builder.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package com.was.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 分页游标编解码
+ * 游标是 "v1:<上一页最后一条记录的id>" 的base64url编码, 对客户端不透明, 升级格式时递增版本号
+ */
+public class PageTokens {
+
+    private static final String VERSION_1 = "v1:";
+
+    /**
+     * @param lastId 当前页最后一条记录的id
+     * @return 下一页游标
+     */
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((VERSION_1 + lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @param token 游标
+     * @return 上一页最后一条记录的id
+     * @throws IllegalArgumentException 游标格式错误
+     */
+    public static long decode(String token) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("分页游标格式错误", e);
+        }
+        if (!value.startsWith(VERSION_1)) {
+            throw new IllegalArgumentException("分页游标格式错误");
+        }
+        try {
+            return Long.parseLong(value.substring(VERSION_1.length()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("分页游标格式错误", e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+-- 角色权限表, 开启was.rbac.enabled之前执行一次; 可重复执行
+create table if not exists `role` (
+    id bigint auto_increment primary key,
+    code varchar(50) not null unique,
+    name varchar(100)
+);
+
+create table if not exists `permission` (
+    id bigint auto_increment primary key,
+    code varchar(100) not null unique,
+    name varchar(100)
+);
+
+create table if not exists `user_role` (
+    user_id bigint not null,
+    role_id bigint not null,
+    primary key (user_id, role_id)
+);
+
+create table if not exists `role_permission` (
+    role_id bigint not null,
+    permission_id bigint not null,
+    primary key (role_id, permission_id)
+);
+
+-- USER是默认角色(was.rbac.default-roles), 所有用户都拥有, 只能查询和导出; 批量导入、角色管理和注销他人会话只授予ADMIN
+insert ignore into `role`(code, name) values ('USER', '普通用户'), ('ADMIN', '管理员');
+insert ignore into `permission`(code, name) values
+    ('user:read', '查询用户'),
+    ('user:export', '导出用户'),
+    ('user:import', '导入用户'),
+    ('role:manage', '管理角色和权限'),
+    ('session:revoke', '注销其他用户的会话');
+insert ignore into `role_permission`(role_id, permission_id)
+    select r.id, p.id from `role` r, `permission` p
+    where r.code = 'USER' and p.code in ('user:read', 'user:export');
+insert ignore into `role_permission`(role_id, permission_id)
+    select r.id, p.id from `role` r, `permission` p
+    where r.code = 'ADMIN';
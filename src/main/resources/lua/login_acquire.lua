@@ -0,0 +1,43 @@
+-- 登录前检查锁定状态, 并同时从用户名和IP两个令牌桶中各取一个令牌
+-- KEYS[1] 用户名令牌桶  KEYS[2] IP令牌桶  KEYS[3] 用户名锁定标记
+-- ARGV[1] 用户名桶容量  ARGV[2] 用户名桶每毫秒补充的令牌数
+-- ARGV[3] IP桶容量      ARGV[4] IP桶每毫秒补充的令牌数
+-- 返回 {结果, 需要等待的毫秒数}  结果: 0允许 1锁定中 2用户名超限 3IP超限
+local lockTtl = redis.call('PTTL', KEYS[3])
+if lockTtl > 0 then
+    return {1, lockTtl}
+end
+
+-- 使用redis的时间, 各节点时钟不一致时结果不受影响
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local function available(key, capacity, rate)
+    local bucket = redis.call('HMGET', key, 'tokens', 'ts')
+    local tokens = tonumber(bucket[1])
+    local ts = tonumber(bucket[2])
+    if tokens == nil or ts == nil then
+        return capacity
+    end
+    return math.min(capacity, tokens + math.max(0, now - ts) * rate)
+end
+
+local userCapacity, userRate = tonumber(ARGV[1]), tonumber(ARGV[2])
+local ipCapacity, ipRate = tonumber(ARGV[3]), tonumber(ARGV[4])
+local userTokens = available(KEYS[1], userCapacity, userRate)
+local ipTokens = available(KEYS[2], ipCapacity, ipRate)
+
+-- 两个桶都有令牌时才同时扣减, 被拒绝的请求不消耗令牌
+if userTokens < 1 then
+    return {2, math.ceil((1 - userTokens) / userRate)}
+end
+if ipTokens < 1 then
+    return {3, math.ceil((1 - ipTokens) / ipRate)}
+end
+
+-- 桶补满所需的时间之后键自动过期, 等价于满桶
+redis.call('HSET', KEYS[1], 'tokens', tostring(userTokens - 1), 'ts', now)
+redis.call('PEXPIRE', KEYS[1], math.ceil(userCapacity / userRate))
+redis.call('HSET', KEYS[2], 'tokens', tostring(ipTokens - 1), 'ts', now)
+redis.call('PEXPIRE', KEYS[2], math.ceil(ipCapacity / ipRate))
+return {0, 0}
@@ -0,0 +1,15 @@
+-- 记录一次登录失败, 达到阈值后按指数增长的时长锁定用户名
+-- KEYS[1] 失败计数  KEYS[2] 锁定标记
+-- ARGV[1] 统计窗口(毫秒)  ARGV[2] 阈值  ARGV[3] 首次锁定时长(毫秒)  ARGV[4] 最长锁定时长(毫秒)
+-- 返回本次设置的锁定时长(毫秒), 未锁定时返回0
+local failures = redis.call('INCR', KEYS[1])
+redis.call('PEXPIRE', KEYS[1], ARGV[1])
+
+local threshold = tonumber(ARGV[2])
+if failures < threshold then
+    return 0
+end
+local duration = math.min(tonumber(ARGV[4]), tonumber(ARGV[3]) * 2 ^ (failures - threshold))
+duration = math.floor(duration)
+redis.call('SET', KEYS[2], failures, 'PX', duration)
+return duration
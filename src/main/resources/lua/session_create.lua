@@ -0,0 +1,50 @@
+-- 创建会话, 同时惰性清理该用户已过期的会话, 会话数达到上限时淘汰最早过期的会话
+-- KEYS[1] 用户会话hash, 字段: <sid>会话数据  <sid>:exp过期时间(毫秒时间戳)  <sid>:meta设备信息
+-- ARGV[1] sid  ARGV[2] 会话数据  ARGV[3] 设备信息  ARGV[4] 当前时间(毫秒)  ARGV[5] ttl(毫秒)  ARGV[6] 每个用户最多会话数
+-- 返回被淘汰的有效会话: {sid1, 设备信息1, sid2, 设备信息2, ...}, 调用方据此失效近端缓存并吊销无状态令牌
+local key = KEYS[1]
+local now = tonumber(ARGV[4])
+local ttl = tonumber(ARGV[5])
+local limit = tonumber(ARGV[6])
+
+-- 升级前的会话是string类型, 直接删除
+local kind = redis.call('TYPE', key).ok
+if kind ~= 'hash' and kind ~= 'none' then
+    redis.call('DEL', key)
+end
+
+local function remove(sid)
+    redis.call('HDEL', key, sid, sid .. ':exp', sid .. ':meta')
+end
+
+local evicted = {}
+local live = {}
+local fields = redis.call('HGETALL', key)
+for i = 1, #fields, 2 do
+    local field = fields[i]
+    if string.sub(field, -4) == ':exp' then
+        local sid = string.sub(field, 1, -5)
+        local expiresAt = tonumber(fields[i + 1])
+        if expiresAt == nil or expiresAt <= now then
+            remove(sid)
+        else
+            live[#live + 1] = {sid, expiresAt}
+        end
+    end
+end
+
+if #live >= limit then
+    table.sort(live, function(a, b) return a[2] < b[2] end)
+    for i = 1, #live - limit + 1 do
+        local victim = live[i][1]
+        evicted[#evicted + 1] = victim
+        evicted[#evicted + 1] = redis.call('HGET', key, victim .. ':meta') or ''
+        remove(victim)
+    end
+end
+
+local sid = ARGV[1]
+redis.call('HSET', key, sid, ARGV[2], sid .. ':exp', now + ttl, sid .. ':meta', ARGV[3])
+-- ttl相同, 最新写入的会话最晚过期, key的过期时间跟随它
+redis.call('PEXPIRE', key, ttl)
+return evicted
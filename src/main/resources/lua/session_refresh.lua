@@ -0,0 +1,11 @@
+-- 会话续期, 只对仍然存在的会话生效, 不会复活已删除的会话
+-- KEYS[1] 用户会话hash  ARGV[1] sid  ARGV[2] 当前时间(毫秒)  ARGV[3] ttl(毫秒)
+-- 返回1表示已续期, 0表示会话不存在
+local sid = ARGV[1]
+if redis.call('HEXISTS', KEYS[1], sid) == 0 then
+    return 0
+end
+local ttl = tonumber(ARGV[3])
+redis.call('HSET', KEYS[1], sid .. ':exp', tonumber(ARGV[2]) + ttl)
+redis.call('PEXPIRE', KEYS[1], ttl)
+return 1
@@ -0,0 +1,17 @@
+-- 删除用户的全部会话
+-- KEYS[1] 用户会话hash
+-- 返回被删除会话的设备信息, 调用方据此吊销无状态模式签发的令牌
+local metas = {}
+if redis.call('TYPE', KEYS[1]).ok ~= 'hash' then
+    -- 不存在或升级前的string会话
+    redis.call('DEL', KEYS[1])
+    return metas
+end
+local fields = redis.call('HGETALL', KEYS[1])
+for i = 1, #fields, 2 do
+    if string.sub(fields[i], -5) == ':meta' then
+        metas[#metas + 1] = fields[i + 1]
+    end
+end
+redis.call('DEL', KEYS[1])
+return metas
@@ -0,0 +1,139 @@
+package com.was.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.was.pojo.UserPageCacheProperties;
+import com.was.pojo.dto.UserPageQueryDTO;
+import com.was.pojo.vo.UserPageVO;
+import com.was.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class UserPageCacheTests {
+
+    private final UserService userService = Mockito.mock(UserService.class);
+    private final StringRedisTemplate stringRedisTemplate = Mockito.mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOperations = Mockito.mock(ValueOperations.class);
+    private final UserPageCacheProperties properties = new UserPageCacheProperties();
+    private final UserPageCache cache = new UserPageCache();
+
+    @BeforeEach
+    void setUp() {
+        properties.setGzipMinSize(64);
+        ReflectionTestUtils.setField(cache, "properties", properties);
+        ReflectionTestUtils.setField(cache, "userService", userService);
+        ReflectionTestUtils.setField(cache, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(cache, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(cache, "listenerContainer", Mockito.mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        Mockito.when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        Mockito.when(valueOperations.get(properties.getVersionKey())).thenReturn("5");
+        Mockito.when(valueOperations.increment(properties.getVersionKey())).thenReturn(6L);
+        cache.init();
+        cache.onChannelSubscribed(null, 1);
+    }
+
+    @Test
+    void servesSameBytesUntilInvalidated() {
+        Mockito.when(userService.pageUsers(Mockito.any())).thenReturn(new UserPageVO(List.of(), "next"));
+
+        UserPageCache.Page first = cache.get(query("a"));
+        assertSame(first, cache.get(query("a")));
+        Mockito.verify(userService, Mockito.times(1)).pageUsers(Mockito.any());
+
+        Mockito.when(userService.pageUsers(Mockito.any())).thenReturn(new UserPageVO(List.of(), null));
+        cache.invalidate();
+        UserPageCache.Page second = cache.get(query("a"));
+        assertNotEquals(first.etag(), second.etag());
+        assertEquals(cache.etag(query("a")), second.etag());
+        Mockito.verify(stringRedisTemplate).convertAndSend(properties.getChannel(), "6");
+    }
+
+    @Test
+    void etagDependsOnVersionAndQueryWithoutQueryingDatabase() {
+        String etag = cache.etag(query("a"));
+        assertEquals(etag, cache.etag(query("a")));
+        assertNotEquals(etag, cache.etag(query("b")));
+
+        // 其他节点写入后通知新版本号, 旧版本的通知不会让版本号回退
+        cache.onMessage(new DefaultMessage(new byte[0], "7".getBytes(StandardCharsets.UTF_8)), null);
+        String changed = cache.etag(query("a"));
+        assertNotEquals(etag, changed);
+        cache.onMessage(new DefaultMessage(new byte[0], "6".getBytes(StandardCharsets.UTF_8)), null);
+        assertEquals(changed, cache.etag(query("a")));
+
+        Mockito.verifyNoInteractions(userService);
+    }
+
+    @Test
+    void failedIncrementFallsBackToContentEtagUntilRetried() {
+        Mockito.when(userService.pageUsers(Mockito.any())).thenReturn(new UserPageVO(List.of(), "next"));
+        Mockito.when(valueOperations.increment(properties.getVersionKey())).thenThrow(new IllegalStateException("redis down"));
+
+        cache.invalidate();
+        assertNull(cache.etag(query("a")));
+        UserPageCache.Page first = cache.get(query("a"));
+        assertEquals(first.etag(), cache.get(query("a")).etag());
+        Mockito.verify(userService, Mockito.times(2)).pageUsers(Mockito.any());
+
+        Mockito.reset(valueOperations);
+        Mockito.when(valueOperations.increment(properties.getVersionKey())).thenReturn(6L);
+        Mockito.when(valueOperations.get(properties.getVersionKey())).thenReturn("6");
+        cache.syncVersion();
+        assertEquals(cache.etag(query("a")), cache.get(query("a")).etag());
+        Mockito.verify(stringRedisTemplate).convertAndSend(properties.getChannel(), "6");
+    }
+
+    @Test
+    void publishesEvenWhenDisabled() {
+        properties.setEnabled(false);
+        UserPageCache disabled = new UserPageCache();
+        ReflectionTestUtils.setField(disabled, "properties", properties);
+        ReflectionTestUtils.setField(disabled, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(disabled, "listenerContainer", Mockito.mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(disabled, "meterRegistry", new SimpleMeterRegistry());
+        disabled.init();
+
+        disabled.invalidate();
+
+        Mockito.verify(stringRedisTemplate).convertAndSend(properties.getChannel(), "6");
+    }
+
+    @Test
+    void compressesOnlyLargeBodies() throws IOException {
+        Mockito.when(userService.pageUsers(Mockito.any())).thenReturn(new UserPageVO(List.of(), "x".repeat(200)));
+        UserPageCache.Page large = cache.get(query("large"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(large.gzipBody()))) {
+            assertArrayEquals(large.body(), in.readAllBytes());
+        }
+        assertEquals(large.etag().replace("\"", "") + "-gzip", large.gzipEtag().replace("\"", ""));
+
+        Mockito.when(userService.pageUsers(Mockito.any())).thenReturn(new UserPageVO(List.of(), null));
+        assertNull(cache.get(query("small")).gzipBody());
+    }
+
+    private static UserPageQueryDTO query(String usernamePrefix) {
+        UserPageQueryDTO query = new UserPageQueryDTO();
+        query.setUsernamePrefix(usernamePrefix);
+        return query;
+    }
+}
@@ -0,0 +1,98 @@
+package com.was.controller;
+
+import com.was.cache.UserPageCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class UserControllerTests {
+
+    private static final byte[] BODY = "{\"code\":1}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GZIP_BODY = {0x1f, (byte) 0x8b, 1, 2, 3};
+
+    private final UserPageCache userPageCache = Mockito.mock(UserPageCache.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        UserController controller = new UserController();
+        ReflectionTestUtils.setField(controller, "userPageCache", userPageCache);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        Mockito.when(userPageCache.etag(Mockito.any())).thenReturn("\"abc\"");
+        Mockito.when(userPageCache.get(Mockito.any())).thenReturn(new UserPageCache.Page("\"abc\"", BODY, GZIP_BODY));
+    }
+
+    @Test
+    void returnsBodyWithEtagAndCacheHeaders() throws Exception {
+        mockMvc.perform(get("/user/form"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().bytes(BODY));
+    }
+
+    @Test
+    void returnsGzipVariantWithItsOwnEtag() throws Exception {
+        mockMvc.perform(get("/user/form").header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-gzip\""))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(content().bytes(GZIP_BODY));
+
+        mockMvc.perform(get("/user/form").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void matchingIfNoneMatchReturnsNotModifiedWithoutRendering() throws Exception {
+        mockMvc.perform(get("/user/form").header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(content().bytes(new byte[0]));
+
+        mockMvc.perform(get("/user/form")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"old\", \"abc-gzip\"")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc-gzip\""));
+
+        // 不接受gzip时压缩响应的ETag不算匹配
+        mockMvc.perform(get("/user/form").header(HttpHeaders.IF_NONE_MATCH, "\"abc-gzip\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""));
+
+        Mockito.verify(userPageCache, Mockito.times(2)).recordNotModified();
+        Mockito.verify(userPageCache, Mockito.times(1)).get(Mockito.any());
+    }
+
+    @Test
+    void unknownVersionFallsBackToContentEtag() throws Exception {
+        Mockito.when(userPageCache.etag(Mockito.any())).thenReturn(null);
+
+        mockMvc.perform(get("/user/form").header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""));
+        mockMvc.perform(get("/user/form").header(HttpHeaders.IF_NONE_MATCH, "\"old\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(BODY));
+
+        Mockito.verify(userPageCache, Mockito.times(2)).get(Mockito.any());
+    }
+}
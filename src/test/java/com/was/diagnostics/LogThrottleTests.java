@@ -0,0 +1,73 @@
+package com.was.diagnostics;
+
+import com.was.pojo.LogProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+class LogThrottleTests {
+
+    private final Logger logger = Mockito.mock(Logger.class);
+    private final LogProperties properties = new LogProperties();
+    private final LogThrottle throttle = new LogThrottle();
+
+    @BeforeEach
+    void setUp() {
+        properties.setErrorSummaryInterval(Duration.ofHours(1));
+        ReflectionTestUtils.setField(throttle, "properties", properties);
+        Mockito.when(logger.isWarnEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void printsFirstAndSummarizesSuppressed() {
+        IllegalStateException e = new IllegalStateException("bad token");
+        for (int i = 0; i < 3; i++) {
+            throttle.warn(logger, "jwt", "token解析失败", e);
+        }
+
+        Mockito.verify(logger).warn("{} [{}]: {}", "token解析失败", "jwt", e.toString());
+
+        throttle.summarize();
+        Mockito.verify(logger).warn("{} [{}]: 过去{}内另有{}次, 已省略", "token解析失败", "jwt", Duration.ofHours(1), 2L);
+
+        // 没有新的省略时不再打印汇总
+        Mockito.clearInvocations(logger);
+        throttle.summarize();
+        Mockito.verifyNoInteractions(logger);
+    }
+
+    @Test
+    void keysAreThrottledSeparately() {
+        throttle.warn(logger, "a", "first", null);
+        throttle.warn(logger, "b", "second", null);
+        throttle.warn(logger, "a", "first", null);
+
+        Mockito.verify(logger).warn("{} [{}]", "first", "a");
+        Mockito.verify(logger).warn("{} [{}]", "second", "b");
+        Mockito.verify(logger, Mockito.times(2)).warn(Mockito.anyString(), Mockito.<Object>any(), Mockito.<Object>any());
+    }
+
+    @Test
+    void printsStackTraceOnlyAtDebug() {
+        Mockito.when(logger.isDebugEnabled()).thenReturn(true);
+        IllegalStateException e = new IllegalStateException("bad token");
+
+        throttle.warn(logger, "jwt", "token解析失败", e);
+
+        Mockito.verify(logger).warn("{} [{}]", "token解析失败", "jwt", e);
+    }
+
+    @Test
+    void printsAgainAfterInterval() {
+        properties.setErrorSummaryInterval(Duration.ZERO);
+
+        throttle.warn(logger, "a", "first", null);
+        throttle.warn(logger, "a", "first", null);
+
+        Mockito.verify(logger, Mockito.times(2)).warn("{} [{}]", "first", "a");
+    }
+}
@@ -0,0 +1,120 @@
+package com.was.filter;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.was.pojo.LogProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogFilterTests {
+
+    private final Logger accessLogger = (Logger) LoggerFactory.getLogger("was.access");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final LogProperties properties = new LogProperties();
+    private final AccessLogFilter filter = new AccessLogFilter();
+    private Level previousLevel;
+
+    @BeforeEach
+    void setUp() {
+        previousLevel = accessLogger.getLevel();
+        accessLogger.setLevel(Level.INFO);
+        appender.start();
+        accessLogger.addAppender(appender);
+        // 默认不采样, 只有总是记录的请求和单独配置了采样率的路由会输出
+        properties.getAccess().setDefaultSampleRate(0);
+        properties.getAccess().setSlowThreshold(Duration.ofHours(1));
+        ReflectionTestUtils.setField(filter, "logProperties", properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accessLogger.detachAppender(appender);
+        accessLogger.setLevel(previousLevel);
+    }
+
+    @Test
+    void samplesByRoute() throws Exception {
+        properties.getAccess().setSampleRates(Map.of("/user/form", 1.0));
+
+        filter.doFilter(request("/user/home"), new MockHttpServletResponse(), handledBy("/user/home", 200));
+        filter.doFilter(request("/user/form"), new MockHttpServletResponse(), handledBy("/user/form", 200));
+
+        assertEquals(1, appender.list.size());
+        String line = appender.list.get(0).getFormattedMessage();
+        assertTrue(line.contains("\"route\":\"/user/form\",\"status\":200"), line);
+        assertFalse(line.contains("sampleRate"), line);
+    }
+
+    @Test
+    void alwaysLogsErrors() throws Exception {
+        filter.doFilter(request("/user/home"), new MockHttpServletResponse(), handledBy("/user/home", 403));
+        assertThrows(ServletException.class, () -> filter.doFilter(request("/user/home"), new MockHttpServletResponse(),
+                (req, res) -> {
+                    throw new ServletException("boom");
+                }));
+
+        assertEquals(2, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().contains("\"status\":403"));
+        assertTrue(appender.list.get(1).getFormattedMessage().contains("\"status\":500"));
+    }
+
+    @Test
+    void alwaysLogsSlowRequests() throws Exception {
+        properties.getAccess().setSlowThreshold(Duration.ZERO);
+
+        filter.doFilter(request("/user/home"), new MockHttpServletResponse(), handledBy("/user/home", 200));
+
+        assertEquals(1, appender.list.size());
+    }
+
+    @Test
+    void logsAsyncRequestOnCompletion() throws Exception {
+        properties.getAccess().setDefaultSampleRate(1.0);
+        MockHttpServletRequest request = request("/user/export");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+        assertEquals(0, appender.list.size());
+
+        response.setStatus(HttpServletResponse.SC_CREATED);
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().contains("\"status\":201"));
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    /**
+     * 模拟DispatcherServlet匹配到路由并返回指定状态码
+     */
+    private static FilterChain handledBy(String route, int status) {
+        return (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, route);
+            ((HttpServletResponse) res).setStatus(status);
+        };
+    }
+}
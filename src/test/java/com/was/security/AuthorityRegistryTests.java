@@ -0,0 +1,96 @@
+package com.was.security;
+
+import com.was.mapper.RoleMapper;
+import com.was.pojo.RbacProperties;
+import com.was.pojo.entity.LoginUser;
+import com.was.pojo.entity.RolePermission;
+import com.was.pojo.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthorityRegistryTests {
+
+    private final RoleMapper roleMapper = Mockito.mock(RoleMapper.class);
+    private final AuthorityRegistry registry = new AuthorityRegistry();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(registry, "properties", new RbacProperties());
+        ReflectionTestUtils.setField(registry, "roleMapper", roleMapper);
+        Mockito.when(roleMapper.listRolePermissions()).thenReturn(List.of(
+                row("USER", "user:read"),
+                row("ADMIN", "user:read"),
+                row("ADMIN", "role:manage"),
+                row("AUDITOR", null)));
+        registry.reload();
+    }
+
+    @Test
+    void expandsRolesAndDefaultRoleIntoBits() {
+        AuthoritySet authorities = registry.forRoleKey("ADMIN");
+
+        assertEquals(Set.of("ROLE_ADMIN", "ROLE_USER", "user:read", "role:manage"),
+                AuthorityUtils.authorityListToSet(authorities));
+        assertTrue(authorities.has(AuthoritySet.bit("role:manage")));
+        assertTrue(authorities.contains(new SimpleGrantedAuthority("ROLE_USER")));
+        assertFalse(registry.forRoleKey("").has("role:manage"));
+        assertFalse(authorities.has("never:granted"));
+    }
+
+    @Test
+    void identicalRoleCombinationsShareOneInstance() {
+        LoginUser first = new LoginUser(User.builder().id(1L).build(), List.of("AUDITOR", "ADMIN"));
+        LoginUser second = new LoginUser(User.builder().id(2L).build(), List.of("ADMIN", "AUDITOR", "ADMIN"));
+
+        assertSame(registry.resolve(first), registry.resolve(second));
+        assertSame(registry.resolve(first), registry.forRoleKey(AuthorityRegistry.roleKey(List.of("ADMIN", "AUDITOR"))));
+    }
+
+    @Test
+    void roleChangeReplacesCachedSets() {
+        LoginUser loginUser = new LoginUser(User.builder().id(1L).build(), List.of("AUDITOR"));
+        AuthoritySet before = registry.resolve(loginUser);
+        registry.reload();
+        assertSame(before, registry.resolve(loginUser));
+
+        Mockito.when(roleMapper.listRolePermissions()).thenReturn(List.of(row("AUDITOR", "role:manage")));
+        registry.reload();
+        AuthoritySet after = registry.resolve(loginUser);
+
+        assertNotSame(before, after);
+        assertFalse(before.has("role:manage"));
+        assertTrue(after.has("role:manage"));
+    }
+
+    @Test
+    void permissionCheckReadsPrincipalBits() {
+        LoginUser admin = new LoginUser(User.builder().id(1L).build(), List.of("ADMIN"));
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(admin, null, registry.resolve(admin));
+
+        assertTrue(PermissionAuthorizationManager.hasPermission("role:manage").check(() -> authentication, null).isGranted());
+        assertFalse(PermissionAuthorizationManager.hasPermission("session:revoke").check(() -> authentication, null).isGranted());
+        assertFalse(PermissionAuthorizationManager.hasPermission("role:manage").check(() -> null, null).isGranted());
+    }
+
+    private static RolePermission row(String role, String permission) {
+        RolePermission row = new RolePermission();
+        row.setRoleCode(role);
+        row.setPermissionCode(permission);
+        return row;
+    }
+}
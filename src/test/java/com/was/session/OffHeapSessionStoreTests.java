@@ -0,0 +1,140 @@
+package com.was.session;
+
+import com.was.exception.ServiceBusyException;
+import com.was.pojo.SessionProperties;
+import com.was.pojo.entity.LoginUser;
+import com.was.pojo.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OffHeapSessionStoreTests {
+
+    private static final long TTL = 60_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void storesSessionsPerUserAndEvictsEarliestExpiring() {
+        OffHeapSessionStore store = store(16, null);
+        long now = System.currentTimeMillis();
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+        store.create("7", first, user(7, "alice"), Map.of("jti", "j1", "tokenExp", 1L), now, TTL, 2);
+        store.create("7", second, user(7, "alice"), Map.of("ip", "1.2.3.4"), now + 1, TTL, 2);
+
+        assertEquals("alice", store.get("7", first).getUsername());
+        assertNull(store.get("8", first));
+        assertNull(store.get("7", "not-a-uuid"));
+        assertEquals(2, store.list("7").size());
+
+        Map<String, Map<String, Object>> evicted =
+                store.create("7", UUID.randomUUID().toString(), user(7, "alice"), Map.of(), now + 2, TTL, 2);
+        assertEquals(List.of(first), List.copyOf(evicted.keySet()));
+        assertEquals("j1", evicted.get(first).get("jti"));
+        assertNull(store.get("7", first));
+
+        assertEquals("1.2.3.4", store.remove("7", second).get("ip"));
+        assertNull(store.remove("7", second));
+        assertEquals(1, store.removeAll(List.of("7", "8")).size());
+        assertEquals(List.of(), store.list("7"));
+    }
+
+    @Test
+    void expiresAndRefreshesSessions() {
+        OffHeapSessionStore store = store(4, null);
+        long now = System.currentTimeMillis();
+        String live = UUID.randomUUID().toString();
+        String stale = UUID.randomUUID().toString();
+        store.create("1", live, user(1, "alice"), Map.of(), now, TTL, 10);
+        store.create("1", stale, user(1, "alice"), Map.of(), now - TTL, 1, 10);
+
+        assertNull(store.get("1", stale));
+        store.refresh(List.of("1:" + live, "1:" + stale), now, TTL * 2);
+        assertEquals(now + TTL * 2, store.list("1").get(0).expiresAt());
+        assertEquals(1, store.list("1").size());
+    }
+
+    @Test
+    void rejectsLoginWhenFull() {
+        OffHeapSessionStore store = store(2, null);
+        long now = System.currentTimeMillis();
+        store.create("1", UUID.randomUUID().toString(), user(1, "alice"), Map.of(), now, TTL, 10);
+        store.create("2", UUID.randomUUID().toString(), user(2, "bobby"), Map.of(), now, TTL, 10);
+
+        assertThrows(ServiceBusyException.class, () ->
+                store.create("3", UUID.randomUUID().toString(), user(3, "carol"), Map.of(), now, TTL, 10));
+    }
+
+    @Test
+    void matchesReferenceModelUnderRandomOperations() {
+        OffHeapSessionStore store = store(64, null);
+        Map<String, String> model = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 20_000; i++) {
+            String userId = String.valueOf(random.nextInt(40));
+            if (random.nextInt(3) > 0 && model.size() < 60) {
+                String sessionId = UUID.randomUUID().toString();
+                store.create(userId, sessionId, user(Long.parseLong(userId), "u" + userId), Map.of(), now, TTL, 64)
+                        .keySet().forEach(evicted -> model.remove(userId + ":" + evicted));
+                model.put(userId + ":" + sessionId, "u" + userId);
+                keys.add(userId + ":" + sessionId);
+            } else if (!keys.isEmpty()) {
+                String key = keys.remove(random.nextInt(keys.size()));
+                String[] parts = key.split(":");
+                assertEquals(model.remove(key) != null, store.remove(parts[0], parts[1]) != null);
+            }
+        }
+        for (String key : keys) {
+            String[] parts = key.split(":");
+            LoginUser loginUser = store.get(parts[0], parts[1]);
+            assertEquals(model.get(key), loginUser == null ? null : loginUser.getUsername());
+        }
+    }
+
+    @Test
+    void restoresSessionsFromFile() {
+        String file = dir.resolve("sessions.dat").toString();
+        long now = System.currentTimeMillis();
+        String sessionId = UUID.randomUUID().toString();
+        OffHeapSessionStore first = store(8, file);
+        first.create("5", sessionId, user(5, "alice"), Map.of("ip", "10.0.0.1"), now, TTL, 10);
+        first.create("6", UUID.randomUUID().toString(), user(6, "bobby"), Map.of(), now - TTL, 1, 10);
+        first.destroy();
+
+        OffHeapSessionStore second = store(8, file);
+        assertEquals("alice", second.get("5", sessionId).getUsername());
+        assertEquals("10.0.0.1", second.list("5").get(0).meta().get("ip"));
+        assertEquals(List.of(), second.list("6"));
+
+        // 容量变化后丢弃文件中的会话
+        OffHeapSessionStore resized = store(16, file);
+        assertNull(resized.get("5", sessionId));
+    }
+
+    private static OffHeapSessionStore store(int capacity, String file) {
+        SessionProperties properties = new SessionProperties();
+        properties.getLocal().setCapacity(capacity);
+        properties.getLocal().setFile(file);
+        return new OffHeapSessionStore(properties, new SimpleMeterRegistry());
+    }
+
+    private static LoginUser user(long id, String userName) {
+        return new LoginUser(User.builder().id(id).userName(userName).build());
+    }
+}
@@ -0,0 +1,81 @@
+package com.was.session;
+
+import com.alibaba.fastjson.support.spring.GenericFastJsonRedisSerializer;
+import com.was.pojo.entity.LoginUser;
+import com.was.pojo.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionRedisSerializerTests {
+
+    private final GenericFastJsonRedisSerializer fastJson = new GenericFastJsonRedisSerializer();
+    private final SessionRedisSerializer serializer = new SessionRedisSerializer(fastJson);
+
+    private final LoginUser loginUser = new LoginUser(User.builder()
+            .id(10086L)
+            .userName("张三zhangsan")
+            .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3ZsKZ5FtGZ7mXoHmQ1jFfrS")
+            .email("zhangsan@example.com")
+            .createTime(LocalDateTime.of(2024, 1, 1, 8, 0))
+            .build());
+
+    @Test
+    void roundTripKeepsOnlyAuthenticationFields() {
+        byte[] bytes = serializer.serialize(loginUser);
+        LoginUser restored = (LoginUser) serializer.deserialize(bytes);
+
+        assertEquals(10086L, restored.getUser().getId());
+        assertEquals("张三zhangsan", restored.getUsername());
+        assertNull(restored.getUser().getPassword());
+        assertNull(restored.getUser().getEmail());
+        assertTrue(bytes.length < fastJson.serialize(loginUser).length / 5);
+    }
+
+    @Test
+    void rolesAreAppendedAfterTheUserName() {
+        LoginUser withRoles = new LoginUser(loginUser.getUser(), List.of("ADMIN", "审计员"));
+        byte[] bytes = serializer.serialize(withRoles);
+        LoginUser restored = (LoginUser) serializer.deserialize(bytes);
+
+        assertEquals(List.of("ADMIN", "审计员"), restored.getRoles());
+        assertEquals("张三zhangsan", restored.getUsername());
+        // 没有角色时与追加角色之前写入的数据完全相同
+        byte[] withoutRoles = serializer.serialize(loginUser);
+        assertEquals(List.of(), ((LoginUser) serializer.deserialize(withoutRoles)).getRoles());
+        assertTrue(Arrays.equals(withoutRoles, Arrays.copyOf(bytes, withoutRoles.length)));
+    }
+
+    @Test
+    void readsEntriesWrittenByFastJson() {
+        LoginUser restored = (LoginUser) serializer.deserialize(fastJson.serialize(loginUser));
+
+        assertEquals(10086L, restored.getUser().getId());
+        assertEquals("张三zhangsan", restored.getUsername());
+    }
+
+    @Test
+    void otherValuesStillUseFastJson() {
+        assertEquals("hello", serializer.deserialize(serializer.serialize("hello")));
+        assertNull(serializer.deserialize(null));
+    }
+
+    @Test
+    void rejectsUnknownVersionAndTruncatedData() {
+        byte[] bytes = serializer.serialize(loginUser);
+        byte[] unknownVersion = bytes.clone();
+        unknownVersion[1] = 99;
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+
+        assertThrows(SerializationException.class, () -> serializer.deserialize(unknownVersion));
+        assertThrows(SerializationException.class, () -> serializer.deserialize(truncated));
+    }
+}
@@ -0,0 +1,75 @@
+package com.was.session;
+
+import com.was.exception.ServiceBusyException;
+import com.was.pojo.SessionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionStoreBreakerTests {
+
+    private final SessionProperties properties = new SessionProperties();
+    private final SessionStoreBreaker breaker = new SessionStoreBreaker();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        properties.getBreaker().setFailureThreshold(3);
+        properties.getBreaker().setOpenDuration(Duration.ofMillis(50));
+        ReflectionTestUtils.setField(breaker, "sessionProperties", properties);
+        ReflectionTestUtils.setField(breaker, "meterRegistry", new SimpleMeterRegistry());
+        breaker.init();
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresAndShortCircuits() {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ServiceBusyException.class, () -> breaker.call(this::timeout));
+        }
+        assertEquals(SessionStoreBreaker.State.OPEN, breaker.state());
+
+        ServiceBusyException e = assertThrows(ServiceBusyException.class, () -> breaker.call(this::timeout));
+        assertEquals(3, calls.get());
+        assertTrue(e.getRetryAfter().toMillis() <= 50);
+    }
+
+    @Test
+    void commandErrorsDoNotCountAsFailures() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(InvalidDataAccessApiUsageException.class, () -> breaker.call(() -> {
+                throw new InvalidDataAccessApiUsageException("WRONGTYPE");
+            }));
+        }
+        assertEquals(SessionStoreBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void halfOpenProbeClosesOrReopens() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ServiceBusyException.class, () -> breaker.call(this::timeout));
+        }
+        Thread.sleep(60);
+        assertThrows(ServiceBusyException.class, () -> breaker.call(this::timeout));
+        assertEquals(SessionStoreBreaker.State.OPEN, breaker.state());
+
+        Thread.sleep(60);
+        assertEquals("ok", breaker.call(() -> "ok"));
+        assertEquals(SessionStoreBreaker.State.CLOSED, breaker.state());
+        assertEquals(Duration.ZERO, breaker.outageDuration());
+    }
+
+    private String timeout() {
+        calls.incrementAndGet();
+        throw new QueryTimeoutException("timeout");
+    }
+}
@@ -0,0 +1,51 @@
+package com.was.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvReaderTests {
+
+    @Test
+    void readsPlainAndQuotedFields() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(
+                "\uFEFFuserName,password,email\r\nalice,\"p,w\"\"d\",a@x.com\nbob,\"line1\nline2\",\r\n"));
+
+        assertEquals(List.of("userName", "password", "email"), reader.next());
+        assertEquals(List.of("alice", "p,w\"d", "a@x.com"), reader.next());
+        assertEquals(List.of("bob", "line1\nline2", ""), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void lastRecordWithoutNewline() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b\rc,d"));
+
+        assertEquals(List.of("a", "b"), reader.next());
+        assertEquals(List.of("c", "d"), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void tooLongRecordIsSkipped() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b\n\"" + "x".repeat(20) + "\ny\",z\nc,d\n"), 10);
+
+        assertEquals(List.of("a", "b"), reader.next());
+        assertThrows(CsvReader.RecordTooLongException.class, reader::next);
+        assertEquals(List.of("c", "d"), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void unclosedQuoteFails() {
+        CsvReader reader = new CsvReader(new StringReader("\"abc"));
+
+        assertThrows(IOException.class, reader::next);
+    }
+}
@@ -0,0 +1,172 @@
+package com.was.utils;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FastJwtVerifierTests {
+
+    private static final String SECRET = "this_is_user_secret_key_at_least_32_bytes";
+
+    private final JwtCodec codec = new JwtCodec(SECRET);
+    private final FastJwtVerifier verifier = new FastJwtVerifier(codec.getKey());
+
+    @Test
+    void validTokenMatchesJjwt() {
+        String token = codec.createJWT(3600000, Map.of("userId", "42"));
+
+        FastJwtVerifier.Verification verification = verifier.verify(token);
+        Claims claims = codec.parseJWT(token);
+
+        assertEquals(FastJwtVerifier.Status.VALID, verification.status());
+        assertEquals(claims.get("userId").toString(), verification.userId());
+        assertEquals(claims.getExpiration().getTime(), verification.expiresAt());
+    }
+
+    @Test
+    void numericUserIdMatchesJjwt() {
+        String token = codec.createJWT(3600000, Map.of("userId", 42L));
+
+        assertEquals(codec.parseJWT(token).get("userId").toString(), verifier.verify(token).userId());
+    }
+
+    @Test
+    void tokenWithoutExpirationIsValid() {
+        String token = codec.createJWT(0, Map.of("userId", "7"));
+
+        assertEquals(FastJwtVerifier.Status.VALID, verifier.verify(token).status());
+        assertEquals("7", codec.parseJWT(token).get("userId").toString());
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() {
+        String token = codec.createJWT(3600000, Map.of("userId", "42"));
+        String forged = codec.createJWT(3600000, Map.of("userId", "1"));
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + forged.split("\\.")[1] + "." + parts[2];
+
+        assertEquals(FastJwtVerifier.Status.BAD_SIGNATURE, verifier.verify(tampered).status());
+        assertThrows(SignatureException.class, () -> codec.parseJWT(tampered));
+    }
+
+    @Test
+    void tokenSignedWithOtherKeyIsRejected() {
+        JwtCodec other = new JwtCodec("another_secret_key_that_is_at_least_32_bytes");
+        String token = other.createJWT(3600000, Map.of("userId", "42"));
+
+        assertEquals(FastJwtVerifier.Status.BAD_SIGNATURE, verifier.verify(token).status());
+        assertThrows(SignatureException.class, () -> codec.parseJWT(token));
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        String token = Jwts.builder()
+                .claims(Map.of("userId", "42"))
+                .issuedAt(new Date(System.currentTimeMillis() - 7200000))
+                .expiration(new Date(System.currentTimeMillis() - 3600000))
+                .signWith(key, Jwts.SIG.HS256)
+                .compact();
+
+        assertEquals(FastJwtVerifier.Status.EXPIRED, verifier.verify(token).status());
+        assertThrows(ExpiredJwtException.class, () -> codec.parseJWT(token));
+    }
+
+    @Test
+    void sessionAndStatelessClaimsMatchJjwt() {
+        String token = codec.createJWT(3600000,
+                Map.of("userId", "42", "sid", "9b0e", "jti", "3f6c1d2e", "userName", "alice", "auth", "ROLE_USER,user:read"));
+
+        FastJwtVerifier.Verification verification = verifier.verify(token);
+        Claims claims = codec.parseJWT(token);
+
+        assertEquals(FastJwtVerifier.Status.VALID, verification.status());
+        assertEquals(claims.get("sid"), verification.sessionId());
+        assertEquals(claims.getId(), verification.jti());
+        assertEquals(claims.get("userName"), verification.userName());
+        assertEquals(claims.get("auth"), verification.authorities());
+        assertNull(verifier.verify(codec.createJWT(3600000, Map.of("userId", "42"))).jti());
+    }
+
+    @Test
+    void unknownHeaderFallsBackToJjwt() {
+        String token = Jwts.builder()
+                .header().add("typ", "JWT").and()
+                .claims(Map.of("userId", "42"))
+                .expiration(new Date(System.currentTimeMillis() + 3600000))
+                .signWith(codec.getKey(), Jwts.SIG.HS256)
+                .compact();
+
+        assertEquals(FastJwtVerifier.Status.UNSUPPORTED, verifier.verify(token).status());
+        assertEquals("42", codec.parseJWT(token).get("userId").toString());
+    }
+
+    @Test
+    void nestedClaimsFallBackToJjwt() {
+        String token = codec.createJWT(3600000, Map.of("userId", "42", "roles", List.of("admin")));
+
+        assertEquals(FastJwtVerifier.Status.UNSUPPORTED, verifier.verify(token).status());
+        assertEquals("42", codec.parseJWT(token).get("userId").toString());
+    }
+
+    @Test
+    void everySingleCharacterMutationAgreesWithJjwt() {
+        String token = codec.createJWT(3600000, Map.of("userId", "42"));
+        char[] replacements = {'A', 'a', 'Q', '0', '-', '_', '.', '='};
+        for (int i = 0; i < token.length(); i++) {
+            for (char replacement : replacements) {
+                if (token.charAt(i) == replacement) {
+                    continue;
+                }
+                String mutated = token.substring(0, i) + replacement + token.substring(i + 1);
+                assertEquivalent(mutated);
+            }
+        }
+    }
+
+    @Test
+    void findsTokenInCookieHeader() {
+        String token = codec.createJWT(3600000, Map.of("userId", "42"));
+
+        assertEquals("42", verifier.verifyCookie("a=1; token=" + token + "; b=2", "token").userId());
+        assertEquals("42", verifier.verifyCookie("token=" + token, "token").userId());
+        assertEquals(FastJwtVerifier.Status.UNSUPPORTED, verifier.verifyCookie("xtoken=" + token, "token").status());
+        assertEquals(FastJwtVerifier.Status.UNSUPPORTED, verifier.verifyCookie("token=\"" + token + "\"", "token").status());
+        assertEquals(FastJwtVerifier.Status.ABSENT, verifier.verifyCookie(null, "token").status());
+        assertEquals(FastJwtVerifier.Status.ABSENT, verifier.verifyCookie("token=", "token").status());
+    }
+
+    /**
+     * 快速校验的结果必须与jjwt一致, 或者返回UNSUPPORTED交给jjwt处理
+     */
+    private void assertEquivalent(String token) {
+        FastJwtVerifier.Verification verification = verifier.verify(token);
+        if (verification.status() == FastJwtVerifier.Status.UNSUPPORTED) {
+            return;
+        }
+        try {
+            Claims claims = codec.parseJWT(token);
+            assertEquals(FastJwtVerifier.Status.VALID, verification.status(), token);
+            assertEquals(claims.get("userId").toString(), verification.userId(), token);
+        } catch (ExpiredJwtException e) {
+            assertEquals(FastJwtVerifier.Status.EXPIRED, verification.status(), token);
+        } catch (JwtException | IllegalArgumentException e) {
+            assertNotEquals(FastJwtVerifier.Status.VALID, verification.status(), token);
+        }
+    }
+}
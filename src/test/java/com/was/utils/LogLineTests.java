@@ -0,0 +1,40 @@
+package com.was.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogLineTests {
+
+    @Test
+    void escapesStringValues() {
+        String line = new LogLine(64)
+                .add("userName", "a\"b\\c\nd\re\tf\u0001g")
+                .toString();
+
+        assertEquals("\"userName\":\"a\\\"b\\\\c\\nd\\re\\tf\\u0001g\"", line);
+    }
+
+    @Test
+    void joinsFieldsAndSkipsNullStrings() {
+        String line = new LogLine(64)
+                .add("method", "GET")
+                .add("route", (String) null)
+                .add("status", 200)
+                .add("sampleRate", 0.5)
+                .add("success", true)
+                .toString();
+
+        assertEquals("\"method\":\"GET\",\"status\":200,\"sampleRate\":0.5,\"success\":true", line);
+    }
+
+    @Test
+    void injectedLineBreakStaysInOneLine() {
+        String line = new LogLine(64)
+                .add("uri", "/x\n{\"event\":\"LOGIN\",\"success\":true}")
+                .toString();
+
+        assertEquals(-1, line.indexOf('\n'));
+        assertEquals("\"uri\":\"/x\\n{\\\"event\\\":\\\"LOGIN\\\",\\\"success\\\":true}\"", line);
+    }
+}